@@ -0,0 +1,72 @@
+package com.wuyr.pathlayoutmanager.benchmark;
+
+import com.wuyr.pathlayoutmanager.core.KeyframeTable;
+import com.wuyr.pathlayoutmanager.core.PolylinePathSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 关键帧的构建和查询
+ */
+@State(Scope.Thread)
+public class KeyframesBenchmark {
+
+    @Param({"1000", "5000"})
+    public int pathLength;
+
+    private PolylinePathSource mSource;
+    private KeyframeTable mTable;
+    private KeyframeTable mAdaptiveTable;
+    private final float[] mValue = new float[3];
+    private float mFraction;
+
+    @Setup
+    public void setUp() {
+        mSource = Paths.arc(pathLength);
+        mTable = new KeyframeTable(mSource, KeyframeTable.PRECISION);
+        mAdaptiveTable = new KeyframeTable(mSource, .5F, 1F);
+    }
+
+    @Benchmark
+    public KeyframeTable build() {
+        return new KeyframeTable(mSource, KeyframeTable.PRECISION);
+    }
+
+    @Benchmark
+    public KeyframeTable buildAdaptive() {
+        return new KeyframeTable(mSource, .5F, 1F);
+    }
+
+    @Benchmark
+    public float getValue() {
+        mTable.getValue(nextFraction(), mValue);
+        return mValue[0];
+    }
+
+    @Benchmark
+    public float getInterpolatedValue() {
+        mTable.getInterpolatedValue(nextFraction(), mValue);
+        return mValue[0];
+    }
+
+    @Benchmark
+    public float getValueAdaptive() {
+        mAdaptiveTable.getValue(nextFraction(), mValue);
+        return mValue[0];
+    }
+
+    /**
+     * 每次查询不同的位置，避免结果被缓存
+     */
+    private float nextFraction() {
+        mFraction += .0137F;
+        if (mFraction >= 1) {
+            mFraction -= 1;
+        }
+        return mFraction;
+    }
+}
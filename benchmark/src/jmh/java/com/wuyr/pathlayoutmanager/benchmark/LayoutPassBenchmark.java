@@ -0,0 +1,99 @@
+package com.wuyr.pathlayoutmanager.benchmark;
+
+import com.wuyr.pathlayoutmanager.core.KeyframeTable;
+import com.wuyr.pathlayoutmanager.core.LayoutBuffer;
+import com.wuyr.pathlayoutmanager.core.PathLayoutCore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 滚动时每一帧的计算量：更新偏移量 -> 计算需要布局的Item -> 计算缩放比例
+ * (与PathLayoutManager#scrollVerticallyBy中除了View操作以外的部分一致)
+ */
+@State(Scope.Thread)
+public class LayoutPassBenchmark {
+
+    private static final int ITEM_OFFSET = 100;
+    private static final float SCROLL_STEP = 7;
+    private static final float[] SCALE_RATIO = {.6F, 0, .8F, .25F, 1, .5F, .8F, .75F, .6F, 1};
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int itemCount;
+
+    @Param({"1000", "5000"})
+    public int pathLength;
+
+    @Param({"0", "1", "2"})
+    public int scrollMode;
+
+    /**
+     * 开始滚动的位置 (相对于Item总长度)，列表越往后，查找第一个可见Item的开销越明显
+     */
+    @Param({"0", "0.5"})
+    public float startPosition;
+
+    private KeyframeTable mTable;
+    private PathLayoutCore mCore;
+    private float mOffset;
+    private float mDelta = SCROLL_STEP;
+    private final LayoutBuffer mLayoutItems = new LayoutBuffer();
+
+    @Setup
+    public void setUp() {
+        mTable = new KeyframeTable(Paths.arc(pathLength), KeyframeTable.PRECISION);
+        mCore = new PathLayoutCore(ITEM_OFFSET);
+        mCore.setPathLength(mTable.getPathLength());
+        mCore.setScrollMode(scrollMode);
+        mOffset = mCore.updateOffset(0, mCore.getItemLength(itemCount) * startPosition, itemCount);
+        mDelta = SCROLL_STEP;
+    }
+
+    /**
+     * 完整的一帧
+     */
+    @Benchmark
+    public void scrollStep(Blackhole blackhole) {
+        float lastOffset = mOffset;
+        mOffset = mCore.updateOffset(mOffset, mDelta, itemCount);
+        //滚到头了就往回滚
+        if (lastOffset == mOffset) {
+            mDelta = -mDelta;
+        }
+        LayoutBuffer items = getNeedLayoutItems();
+        for (int i = 0; i < items.size(); i++) {
+            blackhole.consume(items.getX(i) + items.getY(i) + items.getChildAngle(i));
+            blackhole.consume(PathLayoutCore.getScale(SCALE_RATIO, items.getFraction(i)));
+        }
+    }
+
+    @Benchmark
+    public LayoutBuffer needLayoutItems() {
+        return getNeedLayoutItems();
+    }
+
+    @Benchmark
+    public int overflowCount() {
+        mOffset = mCore.updateOffset(mOffset, SCROLL_STEP, itemCount);
+        return mCore.getOverflowCount(mOffset, itemCount);
+    }
+
+    @Benchmark
+    public void scale(Blackhole blackhole) {
+        for (int i = 0; i < 16; i++) {
+            blackhole.consume(PathLayoutCore.getScale(SCALE_RATIO, i / 16F));
+        }
+    }
+
+    /**
+     * 与PathLayoutManager#getNeedLayoutItems一致
+     */
+    private LayoutBuffer getNeedLayoutItems() {
+        mCore.computeLayoutItems(mTable, false, mOffset, itemCount, itemCount, mLayoutItems);
+        return mLayoutItems;
+    }
+}
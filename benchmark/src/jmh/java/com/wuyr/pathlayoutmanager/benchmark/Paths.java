@@ -0,0 +1,31 @@
+package com.wuyr.pathlayoutmanager.benchmark;
+
+import com.wuyr.pathlayoutmanager.core.PolylinePathSource;
+
+/**
+ * 基准测试用的路径
+ */
+final class Paths {
+
+    private static final int ARC_SEGMENTS = 256;
+
+    private Paths() {
+    }
+
+    /**
+     * 3/4个圆 (用折线近似)，与Demo中常用的弧形路径相似
+     *
+     * @param length 路径长度 (px)
+     */
+    static PolylinePathSource arc(float length) {
+        double sweep = Math.PI * 1.5;
+        double radius = length / sweep;
+        float[] points = new float[(ARC_SEGMENTS + 1) * 2];
+        for (int i = 0; i <= ARC_SEGMENTS; i++) {
+            double angle = Math.PI / 2 + sweep * i / ARC_SEGMENTS;
+            points[i * 2] = (float) (radius + radius * Math.cos(angle));
+            points[i * 2 + 1] = (float) (radius + radius * Math.sin(angle));
+        }
+        return new PolylinePathSource(points);
+    }
+}
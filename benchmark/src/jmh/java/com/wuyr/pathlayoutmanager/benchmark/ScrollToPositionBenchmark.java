@@ -0,0 +1,109 @@
+package com.wuyr.pathlayoutmanager.benchmark;
+
+import com.wuyr.pathlayoutmanager.core.KeyframeTable;
+import com.wuyr.pathlayoutmanager.core.LayoutBuffer;
+import com.wuyr.pathlayoutmanager.core.PathLayoutCore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 无限循环模式下scrollToPosition / smoothScrollToPosition的距离计算 (PathLayoutManager#getDistance)
+ * legacy为原来的实现：先计算整个布局来判断是否可见，再逐个数出与最近Item之间相隔的个数
+ */
+@State(Scope.Thread)
+public class ScrollToPositionBenchmark {
+
+    private static final int ITEM_OFFSET = 100;
+    private static final int PATH_LENGTH = 2000;
+    private static final float AUTO_SELECT_FRACTION = .5F;
+
+    @Param({"1000", "100000", "1000000"})
+    public int itemCount;
+
+    private KeyframeTable mTable;
+    private PathLayoutCore mCore;
+    private final LayoutBuffer mLayoutItems = new LayoutBuffer();
+    private float mOffset;
+    private int mTarget;
+
+    @Setup
+    public void setUp() {
+        mTable = new KeyframeTable(Paths.arc(PATH_LENGTH), KeyframeTable.PRECISION);
+        mCore = new PathLayoutCore(ITEM_OFFSET);
+        mCore.setPathLength(mTable.getPathLength());
+        mCore.setScrollMode(PathLayoutCore.SCROLL_MODE_LOOP);
+        mOffset = mCore.updateOffset(0, 1234, itemCount);
+        //最坏的情况：目标在列表的另一端
+        mTarget = itemCount / 2;
+    }
+
+    @Benchmark
+    public int closedForm() {
+        float fraction = mCore.getVisibleItemFraction(mTarget, mOffset, itemCount, itemCount);
+        float distance = fraction < 0
+                ? mCore.getInvisibleItemDistance(mTarget,
+                mCore.findClosestPosition(mOffset, itemCount, itemCount, AUTO_SELECT_FRACTION), mOffset, itemCount)
+                : mCore.getPathLength() * fraction;
+        return (int) (distance - mCore.getPathLength() * AUTO_SELECT_FRACTION);
+    }
+
+    @Benchmark
+    public int closestPosition() {
+        return mCore.findClosestPosition(mOffset, itemCount, itemCount, AUTO_SELECT_FRACTION);
+    }
+
+    @Benchmark
+    public int legacyClosestPosition() {
+        return legacyFindClosestPosition();
+    }
+
+    @Benchmark
+    public int legacy() {
+        mCore.computeLayoutItems(mTable, false, mOffset, itemCount, itemCount, mLayoutItems);
+        int index = mLayoutItems.indexOf(mTarget);
+        int position = mTarget;
+        float distance;
+        if (index < 0) {
+            int closestPosition = legacyFindClosestPosition();
+            int count = 0;
+            do {
+                count++;
+            } while (legacyFixOverflowIndex(closestPosition + count, itemCount) != position);
+            if (mCore.isSatisfiedLoopScroll(itemCount) && count < Math.abs(closestPosition - position)) {
+                position = closestPosition + count;
+            }
+            distance = position * ITEM_OFFSET - mOffset;
+        } else {
+            distance = mCore.getPathLength() * mLayoutItems.getFraction(index);
+        }
+        return (int) (distance - mCore.getPathLength() * AUTO_SELECT_FRACTION);
+    }
+
+    /**
+     * 原来的PathLayoutManager#findClosestPosition
+     */
+    private int legacyFindClosestPosition() {
+        mCore.computeLayoutItems(mTable, false, mOffset, itemCount, itemCount, mLayoutItems);
+        int hitPos = mLayoutItems.isEmpty() ? -1 : mLayoutItems.getIndex(0);
+        float hitFraction = Float.MAX_VALUE;
+        for (int i = 0; i < mLayoutItems.size(); i++) {
+            float tempFraction = Math.abs(mLayoutItems.getFraction(i) - AUTO_SELECT_FRACTION);
+            if (tempFraction < hitFraction) {
+                hitPos = mLayoutItems.getIndex(i);
+                hitFraction = tempFraction;
+            }
+        }
+        return hitPos;
+    }
+
+    private static int legacyFixOverflowIndex(int index, int count) {
+        while (index < 0) {
+            index += count;
+        }
+        return index % count;
+    }
+}
@@ -0,0 +1,113 @@
+package com.wuyr.pathlayoutmanager;
+
+import android.graphics.Path;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.annotation.UiThreadTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 通过translation定位时，notifyItemChanged不能把Item移到RecyclerView的左上角
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransformPositioningAnimationTest {
+
+    private static final int SIZE = 1000;
+    private static final int ITEM_SIZE = 50;
+    private static final int ITEM_COUNT = 20;
+    private static final int POSITION = 3;
+
+    private RecyclerView mRecyclerView;
+
+    private void setUpRecyclerView() {
+        Path path = new Path();
+        path.moveTo(0, SIZE / 2F);
+        path.lineTo(SIZE, SIZE / 2F);
+        PathLayoutManager layoutManager = new PathLayoutManager(path, 100);
+        layoutManager.setTransformPositioningEnable(true);
+        mRecyclerView = new RecyclerView(InstrumentationRegistry.getTargetContext());
+        mRecyclerView.setLayoutManager(layoutManager);
+        mRecyclerView.setAdapter(new RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+                View view = new View(parent.getContext());
+                view.setLayoutParams(new RecyclerView.LayoutParams(ITEM_SIZE, ITEM_SIZE));
+                return new RecyclerView.ViewHolder(view) {
+                };
+            }
+
+            @Override
+            public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            }
+
+            @Override
+            public int getItemCount() {
+                return ITEM_COUNT;
+            }
+        });
+        layout();
+    }
+
+    private void layout() {
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, SIZE, SIZE);
+    }
+
+    private View findItem() {
+        View item = mRecyclerView.getLayoutManager().findViewByPosition(POSITION);
+        assertNotNull(item);
+        return item;
+    }
+
+    @Test
+    @UiThreadTest
+    public void payloadChange_keepsItemOnPath() {
+        setUpRecyclerView();
+        View item = findItem();
+        float translationX = item.getTranslationX();
+        float translationY = item.getTranslationY();
+        assertNotEquals(0, translationX, 0);
+
+        mRecyclerView.getAdapter().notifyItemChanged(POSITION, "payload");
+        layout();
+        //同一个ViewHolder，位置没有改变，动画开始时也应该在原来的位置
+        assertEquals(item, findItem());
+        assertEquals(translationX, item.getTranslationX(), 0);
+        assertEquals(translationY, item.getTranslationY(), 0);
+
+        mRecyclerView.getItemAnimator().endAnimations();
+        assertEquals(translationX, item.getTranslationX(), 0);
+        assertEquals(translationY, item.getTranslationY(), 0);
+    }
+
+    @Test
+    @UiThreadTest
+    public void change_keepsItemOnPath() {
+        setUpRecyclerView();
+        View oldItem = findItem();
+        float translationX = oldItem.getTranslationX();
+        float translationY = oldItem.getTranslationY();
+        assertNotEquals(0, translationX, 0);
+
+        mRecyclerView.getAdapter().notifyItemChanged(POSITION);
+        layout();
+        //新的Item从旧Item的位置开始淡入 (记录位置时只保留了整数部分)
+        View newItem = findItem();
+        assertEquals(translationX, newItem.getTranslationX(), 1);
+        assertEquals(translationY, newItem.getTranslationY(), 1);
+
+        mRecyclerView.getItemAnimator().endAnimations();
+        assertEquals(translationX, newItem.getTranslationX(), 0);
+        assertEquals(translationY, newItem.getTranslationY(), 0);
+    }
+}
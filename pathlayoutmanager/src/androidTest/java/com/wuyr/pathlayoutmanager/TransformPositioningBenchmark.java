@@ -0,0 +1,135 @@
+package com.wuyr.pathlayoutmanager;
+
+import android.content.Context;
+import android.graphics.Path;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+/**
+ * 比较两种定位方式下每一帧滚动的耗时 (layoutDecorated vs 只修改translation)
+ * 屏幕中同时有上百个Item，每个Item都是带有多个子View的LinearLayout，
+ * layoutDecorated改变Item的位置时，会触发Item内部的重新布局
+ * <p>
+ * 运行：./gradlew :pathlayoutmanager:connectedAndroidTest，结果输出在logcat中 (tag: PathLayoutBenchmark)
+ * (debug包中的绝对耗时会偏大，主要看两者的比例)
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransformPositioningBenchmark {
+
+    private static final String TAG = "PathLayoutBenchmark";
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int ITEM_COUNT = 1000;
+    private static final int ITEM_OFFSET = 40;
+    private static final int WARMUP_FRAMES = 120;
+    private static final int FRAMES = 600;
+    private static final int SCROLL_DISTANCE = 7; //每一帧滚动的距离
+
+    @Test
+    public void layoutDecorated() {
+        report("layoutDecorated", measure(false));
+    }
+
+    @Test
+    public void transformPositioning() {
+        report("transformPositioning", measure(true));
+    }
+
+    private long[] measure(final boolean isTransformPositioning) {
+        final long[] frameTimes = new long[FRAMES];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                RecyclerView recyclerView = new RecyclerView(context);
+                PathLayoutManager layoutManager = new PathLayoutManager(createPath(), ITEM_OFFSET);
+                layoutManager.setScrollMode(PathLayoutManager.SCROLL_MODE_LOOP);
+                layoutManager.setItemScaleRatio(.5F, 0, 1, .5F, .5F, 1);
+                layoutManager.setTransformPositioningEnable(isTransformPositioning);
+                recyclerView.setLayoutManager(layoutManager);
+                recyclerView.setAdapter(new Adapter());
+                recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+                recyclerView.layout(0, 0, WIDTH, HEIGHT);
+                for (int i = 0; i < WARMUP_FRAMES + FRAMES; i++) {
+                    long start = System.nanoTime();
+                    recyclerView.scrollBy(0, SCROLL_DISTANCE);
+                    long time = System.nanoTime() - start;
+                    if (i >= WARMUP_FRAMES) {
+                        frameTimes[i - WARMUP_FRAMES] = time;
+                    }
+                }
+            }
+        });
+        return frameTimes;
+    }
+
+    private static void report(String name, long[] frameTimes) {
+        Arrays.sort(frameTimes);
+        long total = 0;
+        for (long time : frameTimes) {
+            total += time;
+        }
+        Log.i(TAG, String.format("%s: mean %.1fus, median %.1fus, p90 %.1fus, max %.1fus", name,
+                total / 1000F / frameTimes.length, frameTimes[frameTimes.length / 2] / 1000F,
+                frameTimes[frameTimes.length * 9 / 10] / 1000F, frameTimes[frameTimes.length - 1] / 1000F));
+    }
+
+    /**
+     * 铺满屏幕的蛇形Path
+     */
+    private static Path createPath() {
+        Path path = new Path();
+        int rows = 8;
+        float rowHeight = HEIGHT / (float) rows;
+        path.moveTo(0, rowHeight / 2);
+        for (int i = 0; i < rows; i++) {
+            float y = rowHeight * i + rowHeight / 2;
+            boolean isForward = i % 2 == 0;
+            path.lineTo(isForward ? WIDTH : 0, y);
+            if (i < rows - 1) {
+                path.quadTo(isForward ? WIDTH + rowHeight / 2 : -rowHeight / 2, y + rowHeight / 2,
+                        isForward ? WIDTH : 0, y + rowHeight);
+            }
+        }
+        return path;
+    }
+
+    private static class Adapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            LinearLayout layout = new LinearLayout(parent.getContext());
+            layout.setOrientation(LinearLayout.VERTICAL);
+            for (int i = 0; i < 4; i++) {
+                layout.addView(new TextView(parent.getContext()));
+            }
+            return new RecyclerView.ViewHolder(layout) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            ViewGroup layout = (ViewGroup) holder.itemView;
+            for (int i = 0; i < layout.getChildCount(); i++) {
+                ((TextView) layout.getChildAt(i)).setText(position + "-" + i);
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+}
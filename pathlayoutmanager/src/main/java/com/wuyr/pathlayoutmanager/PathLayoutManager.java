@@ -1,26 +1,38 @@
 package com.wuyr.pathlayoutmanager;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
+import android.content.Context;
 import android.graphics.Path;
 import android.graphics.PointF;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.FloatRange;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
 import android.view.View;
 import android.view.ViewGroup;
-
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.widget.OverScroller;
+
+import com.wuyr.pathlayoutmanager.core.KeyframeTable;
+import com.wuyr.pathlayoutmanager.core.LayoutBuffer;
+import com.wuyr.pathlayoutmanager.core.PathLayoutCore;
 import com.wuyr.pathlayoutmanager.keyframes.Keyframes;
-import com.wuyr.pathlayoutmanager.keyframes.PosTan;
+import com.wuyr.pathlayoutmanager.keyframes.KeyframesCache;
+import com.wuyr.pathlayoutmanager.keyframes.PathSignature;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 
 /**
@@ -37,24 +49,32 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
     /**
      * 普通模式
      */
-    public static final int SCROLL_MODE_NORMAL = 0;
+    public static final int SCROLL_MODE_NORMAL = PathLayoutCore.SCROLL_MODE_NORMAL;
 
     /**
      * 溢出模式
      */
-    public static final int SCROLL_MODE_OVERFLOW = 1;
+    public static final int SCROLL_MODE_OVERFLOW = PathLayoutCore.SCROLL_MODE_OVERFLOW;
 
     /**
      * 无限循环模式
      */
-    public static final int SCROLL_MODE_LOOP = 2;
+    public static final int SCROLL_MODE_LOOP = PathLayoutCore.SCROLL_MODE_LOOP;
+
+    //Path上最后一个有效的位置 (getValue要求 < 1)
+    private static final float MAX_FRACTION = Math.nextAfter(1F, 0);
+
+    //惯性滚动动画的最大时长
+    private static final int MAX_FLING_DURATION = 3000;
 
     private Keyframes mKeyframes; //关键帧
-    private int mScrollMode; //滚动模式
+    private final PathLayoutCore mCore; //偏移量、可见范围和缩放比例的计算
+    private final LayoutBuffer mLayoutItems = new LayoutBuffer(); //需要布局的Item (每次布局都会重新填充)
+    private View[] mAttachedItems = new View[16]; //增量布局时，与mLayoutItems一一对应的已存在的Item
+    private final Rect mTempInsets = new Rect(); //测量Item前用来获取ItemDecoration的边距
+    private final LayoutBuffer mExtraItems = new LayoutBuffer(); //预布局时额外布局的Item，以及正式布局时要消失的Item
+    private final float[] mTempValue = new float[3];
     private int mOrientation; //滑动方向
-    private int mItemOffset; //Item间距
-    private int mItemCountInScreen; //屏幕中最多能同时显示的Item个数
-    private int mFirstVisibleItemPos; //第一个可见的Item索引
     private float mOffsetX, mOffsetY; //x轴偏移量和y轴偏移量
     private boolean isItemDirectionFixed; //Item是否保持垂直
     private boolean isAutoSelect; //是否自动选中
@@ -63,6 +83,8 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
     private long mFixingAnimationDuration; //自动选中的动画时长
     private boolean isAnimatorInitialized;
     private int mCacheCount; //缓存的Item个数
+    private int mPrefetchItemCount; //滚动时预取的Item个数
+    private int[] mPrefetchPositions; //预取的Item索引和距离 (重复使用)
     private boolean isFlingEnable; //是否开启惯性滚动
     private boolean isFlinging; //正在惯性滚动中
 
@@ -70,10 +92,66 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
     private RepairedItemAnimator mItemAnimator;
     private RecyclerView.Recycler mRecycler;
     private RecyclerView.State mState;
-    private ValueAnimator mAnimator;
+    private FixingSmoothScroller mSmoothScroller;
+    private Interpolator mFixingInterpolator; //自动选中动画的插值器
+    private boolean isFixing; //正在平滑滚动到目标Item (不受isFlingEnable限制)
+    private RecyclerView.OnFlingListener mFlingListener; //自动选中时接管惯性滚动
+    private RecyclerView mAttachedView; //当前所在的RecyclerView (detach后为null)
+    private OverScroller mFlingPredictor; //用来预测惯性滚动的距离 (跟RecyclerView使用同样的减速曲线)
+    private Interpolator mFlingInterpolator; //惯性滚动的插值器
 
     private OnItemSelectedListener mItemSelectedListener;
 
+    //后台构建关键帧用的线程池 (所有实例共用)
+    private static ExecutorService sKeyframesExecutor;
+    private Handler mMainHandler;
+    private int mPathGeneration; //每次更新Path都会+1，用来丢弃过期的异步构建结果
+    private Path mPath; //当前的Path，修改采样方式后要用它来重新构建关键帧
+    private boolean isPathAsync; //当前的Path是否通过异步方式更新
+    private float mMaxPositionError; //自适应采样所允许的最大位置误差 (为0时使用固定精度采样)
+    private float mMaxAngleError; //自适应采样所允许的最大角度误差
+    private float mPrecision = Keyframes.PRECISION; //固定精度采样时的精度
+    private boolean isInterpolationEnable; //获取Item坐标时是否在相邻的采样点之间插值
+    private boolean isKeyframesPacked; //关键帧是否压缩存储
+    private boolean isTransformPositioning; //是否只通过translation来定位Item
+    private boolean isTranslationUsed; //是否曾经开启过translation定位 (关闭后新取出的Item需要清除残留的translation)
+    private int mErrorRecoveryCount; //Item动画出错后恢复的次数
+    private boolean isPathAnimationEnable; //Item的位移动画是否沿着Path播放
+
+    /**
+     * 给ItemAnimator提供Item在Path上的位置，位移动画就能沿着Path播放
+     */
+    private final RepairedItemAnimator.PathProvider mItemPathProvider = new RepairedItemAnimator.PathProvider() {
+        @Override
+        public float getItemFraction(View item) {
+            return item.getLayoutParams() instanceof LayoutParams
+                    ? ((LayoutParams) item.getLayoutParams()).mFraction : Float.NaN;
+        }
+
+        @Override
+        public boolean getItemTransform(View item, float fraction, float[] out) {
+            return computeItemTransform(item, fraction, out);
+        }
+    };
+
+    /**
+     * 通过translation定位时，ItemAnimator的位移和change动画要以布局时设置的translation为基准
+     */
+    private final RepairedItemAnimator.LayoutTranslationProvider mLayoutTranslationProvider
+            = new RepairedItemAnimator.LayoutTranslationProvider() {
+        @Override
+        public float getLayoutTranslationX(View item) {
+            return isTransformPositioning && item.getLayoutParams() instanceof LayoutParams
+                    ? ((LayoutParams) item.getLayoutParams()).mTranslationX : 0;
+        }
+
+        @Override
+        public float getLayoutTranslationY(View item) {
+            return isTransformPositioning && item.getLayoutParams() instanceof LayoutParams
+                    ? ((LayoutParams) item.getLayoutParams()).mTranslationY : 0;
+        }
+    };
+
     /**
      * @param path       目标路径
      * @param itemOffset Item间距
@@ -89,31 +167,57 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      */
     public PathLayoutManager(Path path, int itemOffset, @RecyclerView.Orientation int orientation) {
         mCacheCount = 2;
+        setPrefetchItemCount(1);
         mAutoSelectFraction = .5F;
         mFixingAnimationDuration = 250;
         mOrientation = orientation;
-        mItemOffset = itemOffset;
+        mCore = new PathLayoutCore(itemOffset);
         isFlingEnable = true;
         updatePath(path);
         mItemAnimator = new RepairedItemAnimator();
+        mItemAnimator.setLayoutTranslationProvider(mLayoutTranslationProvider);
         mItemAnimator.setOnErrorListener(new RepairedItemAnimator.OnErrorListener() {
             @Override
             public void onError(RecyclerView.ViewHolder holder) {
-                if (mRecycler != null && mState != null) {
-                    removeAndRecycleAllViews(mRecycler);
-                    for (int i = 0; i < mState.getItemCount(); i++) {
-                        View view = mRecycler.getViewForPosition(i);
-                        mRecycler.recycleView(view);
-                    }
-                    requestLayout();
-                }
+                recoverFromAnimationError(holder);
             }
         });
     }
 
+    /**
+     * Item动画结束时出错的恢复：只重置出错的Item，然后重新布局可见范围内的Item
+     * (不再为Adapter中的每一个Item都创建和绑定一次View，Item很多时会卡住很久)
+     */
+    private void recoverFromAnimationError(RecyclerView.ViewHolder holder) {
+        mErrorRecoveryCount++;
+        View view = holder.itemView;
+        //动画被中断时残留的属性
+        view.setAlpha(1);
+        if (!isTransformPositioning) {
+            view.setTranslationX(0);
+            view.setTranslationY(0);
+        }
+        //下一次布局时重新测量，并重新设置旋转角度和缩放比例
+        if (view.getLayoutParams() instanceof LayoutParams) {
+            ((LayoutParams) view.getLayoutParams()).invalidate();
+        }
+        if (mRecycler != null) {
+            removeAndRecycleAllViews(mRecycler);
+            requestLayout();
+        }
+    }
+
+    /**
+     * @return Item动画出错后恢复的次数
+     */
+    public int getErrorRecoveryCount() {
+        return mErrorRecoveryCount;
+    }
+
     @Override
     public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
-        if (state.getItemCount() == 0) {
+        //关键帧还在后台构建中，先不布局
+        if (state.getItemCount() == 0 || mKeyframes == null) {
             removeAndRecycleAllViews(recycler);
             return;
         }
@@ -127,7 +231,89 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
         }
 
         detachAndScrapAttachedViews(recycler);
-        relayoutChildren(recycler, state);
+        if (state.isPreLayout()) {
+            preLayoutChildren(recycler, state);
+        } else {
+            relayoutChildren(recycler, state);
+        }
+    }
+
+    @Override
+    public boolean supportsPredictiveItemAnimations() {
+        //translation定位时，ItemAnimator的位移动画会跟它冲突
+        return !isTransformPositioning;
+    }
+
+    /**
+     * 预布局：按变动前的索引布局屏幕中的Item，
+     * 每有一个被删除的Item，就在后面多布局一个 (放在Path的终点上)，
+     * 它们会在正式布局时移进来，ItemAnimator需要知道它们是从哪里开始移动的
+     */
+    private void preLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        int itemCount = state.getItemCount();
+        LayoutBuffer needLayoutItems = getNeedLayoutItems(itemCount, itemCount);
+        if (needLayoutItems.isEmpty()) {
+            return;
+        }
+        int removedCount = 0;
+        View item;
+        for (int i = 0; i < needLayoutItems.size(); i++) {
+            item = recycler.getViewForPosition(needLayoutItems.getIndex(i));
+            addView(item);
+            measureItem(item);
+            layoutItem(item, needLayoutItems, i);
+            if (((RecyclerView.LayoutParams) item.getLayoutParams()).isItemRemoved()) {
+                removedCount++;
+            }
+        }
+        boolean isLoop = mCore.isSatisfiedLoopScroll(itemCount);
+        int lastPosition = needLayoutItems.getIndex(needLayoutItems.size() - 1);
+        for (int i = 1; i <= removedCount; i++) {
+            int position = isLoop ? PathLayoutCore.fixOverflowIndex(lastPosition + i, itemCount) : lastPosition + i;
+            //已经到尽头了 (或者无限循环模式下已经绕回到屏幕中的Item)
+            if (position >= itemCount || needLayoutItems.indexOf(position) >= 0) {
+                break;
+            }
+            item = recycler.getViewForPosition(position);
+            addView(item);
+            measureItem(item);
+            layoutItemOutside(item, position, itemCount);
+        }
+    }
+
+    /**
+     * 正式布局之后，还留在Scrap中 (没有被删除，只是移出了屏幕) 的Item需要播放消失的动画，
+     * 把它们放在Path的起点或终点上，动画就会沿着Item离开的方向播放
+     */
+    private void layoutDisappearingItems(RecyclerView.Recycler recycler) {
+        List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+        //addDisappearingView会把Item从Scrap中移除，所以要倒着遍历
+        for (int i = scrapList.size() - 1; i >= 0; i--) {
+            RecyclerView.ViewHolder holder = scrapList.get(i);
+            View item = holder.itemView;
+            if (((RecyclerView.LayoutParams) item.getLayoutParams()).isItemRemoved()) {
+                continue;
+            }
+            addDisappearingView(item);
+            measureItem(item);
+            layoutItemOutside(item, holder.getLayoutPosition(), getItemCount());
+        }
+    }
+
+    /**
+     * 把不在Path上的Item放到离它最近的Path端点上
+     */
+    private void layoutItemOutside(View item, int position, int itemCount) {
+        float fraction = mCore.getItemFractionByPosition(position, getScrollOffset(), itemCount);
+        fraction = Math.max(0, Math.min(fraction, MAX_FRACTION));
+        KeyframeTable table = mKeyframes.getTable();
+        boolean isValid = isInterpolationEnable ? table.getInterpolatedValue(fraction, mTempValue)
+                : table.getValue(fraction, mTempValue);
+        if (isValid) {
+            mExtraItems.clear();
+            mExtraItems.add(position, mTempValue[0], mTempValue[1], mTempValue[2], fraction);
+            layoutItem(item, mExtraItems, 0);
+        }
     }
 
     @Override
@@ -181,13 +367,17 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      * 检查状态并进行布局和回收旧Item
      */
     private void relayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
-        List<PosTan> needLayoutItems = getNeedLayoutItems();
+        LayoutBuffer needLayoutItems = getNeedLayoutItems();
         if (needLayoutItems.isEmpty() || state.getItemCount() == 0 || mKeyframes == null) {
             removeAndRecycleAllViews(recycler);
             return;
         }
         onLayout(recycler, needLayoutItems);
-        recycleChildren(recycler);
+        if (state.willRunPredictiveAnimations()) {
+            layoutDisappearingItems(recycler);
+        } else {
+            recycleChildren(recycler);
+        }
     }
 
     /**
@@ -195,218 +385,183 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      *
      * @param needLayoutItems 需要布局的Item
      */
-    private void onLayout(RecyclerView.Recycler recycler, List<PosTan> needLayoutItems) {
-        int x, y;
+    private void onLayout(RecyclerView.Recycler recycler, LayoutBuffer needLayoutItems) {
         View item;
-        for (PosTan tmp : needLayoutItems) {
-            item = recycler.getViewForPosition(tmp.index);
+        for (int i = 0; i < needLayoutItems.size(); i++) {
+            item = recycler.getViewForPosition(needLayoutItems.getIndex(i));
             addView(item);
-            measureChild(item, 0, 0);
-
-            //Path线条在View的中间
-            x = (int) tmp.x - getDecoratedMeasuredWidth(item) / 2;
-            y = (int) tmp.y - getDecoratedMeasuredHeight(item) / 2;
-
-            layoutDecorated(item, x, y, x + getDecoratedMeasuredWidth(item), y + getDecoratedMeasuredHeight(item));
-            item.setRotation(isItemDirectionFixed ? 0 : tmp.getChildAngle());
-            if (mScaleRatio != null) {
-                float scale = getScale(tmp.fraction);
-                item.setScaleX(scale);
-                item.setScaleY(scale);
-            }
+            measureItem(item);
+            resetTranslation(item);
+            layoutItem(item, needLayoutItems, i);
         }
     }
 
     /**
-     * 根据Item在Path上的位置来获取对应的缩放比例
-     *
-     * @param fraction Item位置相对于Path总长度的百分比
-     * @return 该Item的缩放比例
+     * 滚动时的增量布局：已经在屏幕中的Item直接移到新的位置，
+     * 只回收离开的Item，只有新进入的Item才需要从Recycler中获取
      */
-    private float getScale(float fraction) {
-        boolean isHasMin = false;
-        boolean isHasMax = false;
-        float minScale = 0;
-        float maxScale = 0;
-        float scalePosition;
-        float minFraction = 1, maxFraction = 1;
-        //必须从小到大遍历，才能找到最贴近fraction的scale
-        for (int i = 1; i < mScaleRatio.length; i += 2) {
-            scalePosition = mScaleRatio[i];
-            if (scalePosition <= fraction) {
-                minScale = mScaleRatio[i - 1];
-                minFraction = mScaleRatio[i];
-                isHasMin = true;
+    private void relayoutChildrenIncrementally(RecyclerView.Recycler recycler) {
+        LayoutBuffer needLayoutItems = getNeedLayoutItems();
+        if (needLayoutItems.isEmpty()) {
+            removeAndRecycleAllViews(recycler);
+            return;
+        }
+        int size = needLayoutItems.size();
+        if (mAttachedItems.length < size) {
+            mAttachedItems = Arrays.copyOf(mAttachedItems, size);
+        }
+        int itemCount = getItemCount();
+        int firstIndex = needLayoutItems.getIndex(0);
+        //把已存在的Item按新的布局顺序放好，不在新布局中的直接回收
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            int position = getPosition(child);
+            //需要布局的Item索引是连续的 (无限循环模式下会从头开始)，大多数情况下可以直接算出来
+            int slot = PathLayoutCore.fixOverflowIndex(position - firstIndex, itemCount);
+            if (slot >= size || needLayoutItems.getIndex(slot) != position) {
+                slot = needLayoutItems.indexOf(position);
+            }
+            if (slot < 0 || mAttachedItems[slot] != null) {
+                removeAndRecycleView(child, recycler);
             } else {
-                break;
+                mAttachedItems[slot] = child;
             }
         }
-        //必须从大到小遍历，才能找到最贴近fraction的scale
-        for (int i = mScaleRatio.length - 1; i >= 1; i -= 2) {
-            scalePosition = mScaleRatio[i];
-            if (scalePosition >= fraction) {
-                maxScale = mScaleRatio[i - 1];
-                maxFraction = mScaleRatio[i];
-                isHasMax = true;
+        View item;
+        for (int i = 0; i < size; i++) {
+            item = mAttachedItems[i];
+            if (item == null) {
+                item = recycler.getViewForPosition(needLayoutItems.getIndex(i));
+                //前面的i个Item都已经就位，插在它们后面，保持跟全量布局时一样的绘制顺序
+                addView(item, i);
+                measureItem(item);
+                resetTranslation(item);
             } else {
-                break;
+                mAttachedItems[i] = null;
+                measureItem(item);
             }
+            layoutItem(item, needLayoutItems, i);
         }
-        if (!isHasMin) {
-            minScale = 1;
-        }
-        if (!isHasMax) {
-            maxScale = 1;
-        }
-        fraction = solveTwoPointForm(minFraction, maxFraction, fraction);
-        float distance = maxScale - minScale;
-        float scale = distance * fraction;
-        float result = minScale + scale;
-        return isFinite(result) ? result : minScale;
     }
 
     /**
-     * 将基于总长度的百分比转换成基于某个片段的百分比 (解两点式直线方程)
-     *
-     * @param startX   片段起始百分比
-     * @param endX     片段结束百分比
-     * @param currentX 总长度百分比
-     * @return 该片段的百分比
+     * 把Item放到Path上对应的位置，并设置旋转角度和缩放比例
      */
-    private float solveTwoPointForm(float startX, float endX, float currentX) {
-        return (currentX - startX) / (endX - startX);
+    private void layoutItem(View item, LayoutBuffer needLayoutItems, int i) {
+        int width = getDecoratedMeasuredWidth(item);
+        int height = getDecoratedMeasuredHeight(item);
+        LayoutParams lp = (LayoutParams) item.getLayoutParams();
+        if (isTransformPositioning) {
+            //固定在原点，只有尺寸改变了 (或者Item请求了重新布局) 才需要layout，位置全靠translation (只会修改RenderNode的属性)
+            if (item.isLayoutRequested() || getDecoratedLeft(item) != 0 || getDecoratedTop(item) != 0
+                    || getDecoratedRight(item) != width || getDecoratedBottom(item) != height) {
+                layoutDecorated(item, 0, 0, width, height);
+            }
+            //Path线条在View的中间
+            lp.mTranslationX = needLayoutItems.getX(i) - width / 2F;
+            lp.mTranslationY = needLayoutItems.getY(i) - height / 2F;
+            item.setTranslationX(lp.mTranslationX);
+            item.setTranslationY(lp.mTranslationY);
+        } else {
+            //Path线条在View的中间
+            int x = (int) needLayoutItems.getX(i) - width / 2;
+            int y = (int) needLayoutItems.getY(i) - height / 2;
+            layoutDecorated(item, x, y, x + width, y + height);
+        }
+        lp.mFraction = needLayoutItems.getFraction(i);
+        //跟上一次设置的值一样就不再设置，避免多余的invalidate
+        float rotation = isItemDirectionFixed ? 0 : needLayoutItems.getChildAngle(i);
+        if (lp.mRotation != rotation) {
+            lp.mRotation = rotation;
+            item.setRotation(rotation);
+        }
+        if (mScaleRatio != null) {
+            float scale = PathLayoutCore.getScale(mScaleRatio, needLayoutItems.getFraction(i));
+            if (lp.mScale != scale) {
+                lp.mScale = scale;
+                item.setScaleX(scale);
+                item.setScaleY(scale);
+            }
+        }
     }
 
     /**
-     * 判断数值是否合法
-     *
-     * @param value 要判断的数值
-     * @return 合法为true，反之
+     * 计算Item在Path上的fraction处时，相对于当前布局位置的translation，以及旋转角度和缩放比例 (跟layoutItem一致)
      */
-    private boolean isFinite(float value) {
-        return !Float.isNaN(value) && !Float.isInfinite(value);
-    }
-
-    private List<PosTan> getNeedLayoutItems() {
-        checkKeyframes();
-        List<PosTan> result = new ArrayList<>();
-        //item个数
-        int itemCount = getItemCount();
-        //满足无限滚动
-        if (isSatisfiedLoopScroll()) {
-            initNeedLayoutLoopScrollItems(result, itemCount);
+    private boolean computeItemTransform(View item, float fraction, float[] out) {
+        if (mKeyframes == null) {
+            return false;
+        }
+        fraction = Math.max(0, Math.min(fraction, MAX_FRACTION));
+        KeyframeTable table = mKeyframes.getTable();
+        boolean isValid = isInterpolationEnable ? table.getInterpolatedValue(fraction, mTempValue)
+                : table.getValue(fraction, mTempValue);
+        if (!isValid) {
+            return false;
+        }
+        int width = getDecoratedMeasuredWidth(item);
+        int height = getDecoratedMeasuredHeight(item);
+        float left, top;
+        if (isTransformPositioning) {
+            left = mTempValue[0] - width / 2F;
+            top = mTempValue[1] - height / 2F;
         } else {
-            initNeedLayoutItems(result, itemCount);
+            left = (int) mTempValue[0] - width / 2;
+            top = (int) mTempValue[1] - height / 2;
         }
-        return result;
+        out[0] = left - getDecoratedLeft(item);
+        out[1] = top - getDecoratedTop(item);
+        out[2] = isItemDirectionFixed ? 0 : mTempValue[2] - 90;
+        out[3] = mScaleRatio == null ? Float.NaN : PathLayoutCore.getScale(mScaleRatio, fraction);
+        return true;
     }
 
     /**
-     * 初始化需要布局的Item数据 （无限滚动模式）
-     *
-     * @param result    结果
-     * @param itemCount Item总数
+     * 只有Item请求了重新布局，或者测量条件 (RecyclerView的可用尺寸、ItemDecoration的边距) 改变了才重新测量
      */
-    private void initNeedLayoutLoopScrollItems(List<PosTan> result, int itemCount) {
-        int overflowCount = getOverflowCount();
-        //得出第一个可见的item
-        mFirstVisibleItemPos = overflowCount - mItemCountInScreen - 1;
-        float currentDistance;
-        float fraction;
-        PosTan posTan;
-        int pos;
-        for (int i = mFirstVisibleItemPos; i < overflowCount; i++) {
-            pos = i % itemCount;
-            if (pos < 0) {
-                if (pos == -itemCount) {
-                    pos = 0;
-                } else {
-                    // [0,1,2,3,4,5,6,7,8,9]
-                    // -9 --> 1   -8 --> 2
-                    pos += itemCount;
-                }
-            }
-            currentDistance = (i + itemCount) * mItemOffset - getScrollOffset();
-            fraction = currentDistance / mKeyframes.getPathLength();
-            posTan = mKeyframes.getValue(fraction);
-            if (posTan == null) {
-                continue;
-            }
-            result.add(new PosTan(posTan, pos, fraction));
+    private void measureItem(View item) {
+        LayoutParams lp = (LayoutParams) item.getLayoutParams();
+        //边距被标记为过期时会在这里重新计算
+        calculateItemDecorationsForChild(item, mTempInsets);
+        int availableWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        int availableHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (item.isLayoutRequested() || !lp.mMeasuredInsets.equals(mTempInsets)
+                || lp.mMeasuredWidth != availableWidth || lp.mMeasuredHeight != availableHeight) {
+            measureChild(item, 0, 0);
+            lp.mMeasuredInsets.set(mTempInsets);
+            lp.mMeasuredWidth = availableWidth;
+            lp.mMeasuredHeight = availableHeight;
         }
     }
 
-
     /**
-     * 初始化需要布局的Item数据 （非无限滚动模式）
-     *
-     * @param result    结果
-     * @param itemCount Item总数
+     * 关闭translation定位后，从Recycler中取出的Item可能还带着之前的translation
      */
-    private void initNeedLayoutItems(List<PosTan> result, int itemCount) {
-        float currentDistance;
-        for (int i = 0; i < itemCount; i++) {
-            currentDistance = i * mItemOffset - getScrollOffset();
-            if (currentDistance >= 0) {
-                mFirstVisibleItemPos = i;
-                break;
-            }
-        }
-
-        int endIndex = mFirstVisibleItemPos + mItemCountInScreen;
-        int totalItemCount = mState == null ? getItemCount() : mState.getItemCount();
-        if (endIndex > totalItemCount) {
-            endIndex = totalItemCount;
-        }
-        float fraction;
-        PosTan posTan;
-        for (int i = mFirstVisibleItemPos; i < endIndex; i++) {
-            currentDistance = i * mItemOffset - getScrollOffset();
-            fraction = currentDistance / mKeyframes.getPathLength();
-            posTan = mKeyframes.getValue(fraction);
-            if (posTan == null) {
-                continue;
-            }
-            result.add(new PosTan(posTan, i, fraction));
+    private void resetTranslation(View item) {
+        if (isTranslationUsed && !isTransformPositioning) {
+            item.setTranslationX(0);
+            item.setTranslationY(0);
         }
     }
 
     /**
-     * 获取溢出的Item个数
+     * 计算需要布局的Item，结果保存在mLayoutItems中 (重复使用，不会创建新的对象)
      */
-    private int getOverflowCount() {
-        //item总长度
-        int itemLength = getItemLength();
-
-        //path的长度
-        int pathLength = mKeyframes.getPathLength();
-
-        //第一个item较Path终点的偏移量，这个偏移量是以Path的终点为起点的，例如 现在一共有10个item：
-        //                     0___1___2___3___4___5 现在的偏移量是>0的，直到：
-        //                     5___6___7___8___9___0 时为0，这个时候继续向右边滚动的话，就会变成负数了
-        int firstItemScrollOffset = (int) (getScrollOffset() + pathLength);
-
-        //同上，区别就是上面的是第一个item，这个是最后一个item，例如 现在一共有10个item：
-        //                     0___1___2___3___4___5 现在的偏移量是<0的，一直到：
-        //                     4___5___6___7___8___9 时为0
-        //这样做就是为了：当最后一个item离开它应在的位置时 (常规的滑动模式最后一个item是坐死在最后的位置的)，
-        //能够及时知道，并开始计算出它下一个item索引来补上它的空位
-        int lastItemScrollOffset = firstItemScrollOffset - itemLength;
-        //item的总长度 + path的总长度
-        int lengthOffset = itemLength + pathLength;
-
-        //当最后一个item滑出屏幕时(根据上面的例子来讲，是向左边滑)：
-        //                     9_|_0___1___2___3___4
-        // 开始计算的偏移量（正数），因为如果超出了屏幕而不作处理的话，
-        // 下面计算空缺距离的时候，最大值只能是itemLength
-        int lastItemOverflowOffset = firstItemScrollOffset > lengthOffset ?
-                firstItemScrollOffset - lengthOffset : 0;
-
-        //空缺的距离
-        int vacantDistance = lastItemScrollOffset % itemLength + lastItemOverflowOffset;
+    private LayoutBuffer getNeedLayoutItems() {
+        //item个数
+        int itemCount = getItemCount();
+        return getNeedLayoutItems(itemCount, mState == null ? itemCount : mState.getItemCount());
+    }
 
-        //空缺的距离 / item之间的距离 = 需补上的item个数
-        return vacantDistance / mItemOffset;
+    /**
+     * @param itemCount      Item总数 (预布局时是变动前的个数)
+     * @param totalItemCount 普通模式下用来限制范围的Item总数
+     */
+    private LayoutBuffer getNeedLayoutItems(int itemCount, int totalItemCount) {
+        checkKeyframes();
+        mCore.computeLayoutItems(mKeyframes.getTable(), isInterpolationEnable, getScrollOffset(),
+                itemCount, totalItemCount, mLayoutItems);
+        return mLayoutItems;
     }
 
     /**
@@ -421,44 +576,40 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
         }
     }
 
-    /**
-     * 把小于0或者大于getItemCount()的索引转换成合法的索引
-     * 比如: getItemCount() = 10
-     * 如果此时index传 11 那么就返回 1
-     * 如果index为 -1 则返回 10
-     */
-    private int fixOverflowIndex(int index, int count) {
-        while (index < 0) {
-            index += count;
-        }
-        return index % count;
-    }
-
     @Override
     public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state) {
         mRecycler = recycler;
         mState = state;
-        checkKeyframes();
-        detachAndScrapAttachedViews(recycler);
+        if (mKeyframes == null) {
+            return 0;
+        }
         //临时记录上一次的offset
         float lastOffset = mOffsetX;
         updateOffsetX(dx);
-        relayoutChildren(recycler, state);
         //如果offset没有改变，那么就直接return 0了
-        return lastOffset == mOffsetX ? 0 : dx;
+        if (lastOffset == mOffsetX) {
+            return 0;
+        }
+        relayoutChildrenIncrementally(recycler);
+        return dx;
     }
 
     @Override
     public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
         mRecycler = recycler;
         mState = state;
-        checkKeyframes();
-        detachAndScrapAttachedViews(recycler);
+        if (mKeyframes == null) {
+            return 0;
+        }
+        //临时记录上一次的offset
         float lastOffset = mOffsetY;
         updateOffsetY(dy);
-        relayoutChildren(recycler, state);
         //如果offset没有改变，那么就直接return 0了
-        return lastOffset == mOffsetY ? 0 : dy;
+        if (lastOffset == mOffsetY) {
+            return 0;
+        }
+        relayoutChildrenIncrementally(recycler);
+        return dy;
     }
 
     /**
@@ -467,41 +618,10 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      * @param offsetY 偏移量
      */
     private void updateOffsetY(float offsetY) {
-        if (isFlinging && !isFlingEnable) {
+        if (isFlinging && !isFlingEnable && !isFixing) {
             return;
         }
-        mOffsetY += offsetY;
-        int pathLength = mKeyframes.getPathLength();
-        int itemLength = getItemLength();
-        if ((isSatisfiedLoopScroll(pathLength, itemLength))) {
-            if (mOffsetY > itemLength) {
-                mOffsetY %= itemLength;
-                //因为是向前偏移了一个Item的距离
-                mOffsetY -= mItemOffset;
-            } else if (mOffsetY <= -pathLength) {
-                mOffsetY += itemLength;
-                mOffsetY += mItemOffset;
-            }
-        } else {
-            if (isOverflowMode()) {
-                if (mOffsetY < -pathLength) {
-                    mOffsetY = -pathLength;
-                } else if (mOffsetY > itemLength) {
-                    mOffsetY = itemLength;
-                }
-            } else {
-                int overflowLength = itemLength - pathLength;
-                if (mOffsetY < 0) {
-                    mOffsetY = 0;
-                } else if (mOffsetY > overflowLength) {
-                    if (itemLength > pathLength) {
-                        mOffsetY = overflowLength;
-                    } else {
-                        mOffsetY -= offsetY;
-                    }
-                }
-            }
-        }
+        mOffsetY = mCore.updateOffset(mOffsetY, offsetY, getItemCount());
     }
 
     /**
@@ -510,41 +630,10 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      * @param offsetX 偏移量
      */
     private void updateOffsetX(float offsetX) {
-        if (isFlinging && !isFlingEnable) {
+        if (isFlinging && !isFlingEnable && !isFixing) {
             return;
         }
-        mOffsetX += offsetX;
-        int pathLength = mKeyframes.getPathLength();
-        int itemLength = getItemLength();
-        if (isSatisfiedLoopScroll(pathLength, itemLength)) {
-            if (mOffsetX > itemLength) {
-                mOffsetX %= itemLength;
-                //因为是向前偏移了一个Item的距离
-                mOffsetX -= mItemOffset;
-            } else if (mOffsetX <= -pathLength) {
-                mOffsetX += itemLength;
-                mOffsetX += mItemOffset;
-            }
-        } else {
-            if (isOverflowMode()) {
-                if (mOffsetX < -pathLength) {
-                    mOffsetX = -pathLength;
-                } else if (mOffsetX > itemLength) {
-                    mOffsetX = itemLength;
-                }
-            } else {
-                int overflowLength = itemLength - pathLength;
-                if (mOffsetX < 0) {
-                    mOffsetX = 0;
-                } else if (mOffsetX > overflowLength) {
-                    if (itemLength > pathLength) {
-                        mOffsetX = overflowLength;
-                    } else {
-                        mOffsetX -= offsetX;
-                    }
-                }
-            }
-        }
+        mOffsetX = mCore.updateOffset(mOffsetX, offsetX, getItemCount());
     }
 
     /**
@@ -553,78 +642,201 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      */
     private boolean isSatisfiedLoopScroll() {
         checkKeyframes();
-        int pathLength = mKeyframes.getPathLength();
-        int itemLength = getItemLength();
-        return isLoopScrollMode() && itemLength - pathLength > mItemOffset;
+        return mCore.isSatisfiedLoopScroll(getItemCount());
+    }
+
+    /**
+     * 根据当前设置的滚动方向来获取对应的滚动偏移量
+     */
+    private float getScrollOffset() {
+        return mOrientation == RecyclerView.VERTICAL ? mOffsetY : mOffsetX;
+    }
+
+    @Override
+    public boolean canScrollVertically() {
+        return mOrientation == RecyclerView.VERTICAL;
     }
 
+    @Override
+    public boolean canScrollHorizontally() {
+        return mOrientation == RecyclerView.HORIZONTAL;
+    }
 
     /**
-     * 判断是否满足无限循环滚动条件
-     * 条件： 必须明确设置滚动模式为 无限循环模式，并且Item的总长度要大声Path的总长度
+     * 更新Path
      */
-    private boolean isSatisfiedLoopScroll(int pathLength, int itemLength) {
-        return isLoopScrollMode() && itemLength - pathLength > mItemOffset;
+    public void updatePath(Path path) {
+        if (path != null) {
+            mPath = path;
+            isPathAsync = false;
+            //使正在进行的异步构建失效
+            mPathGeneration++;
+            applyKeyframes(createKeyframes(path, mPrecision, mMaxPositionError, mMaxAngleError, isKeyframesPacked));
+        } else {
+            requestLayout();
+        }
     }
 
     /**
-     * @return 滚动模式是否为 无限循环滚动模式
+     * 在后台线程中采样Path并构建关键帧，构建完成前继续使用旧的关键帧 (没有则不布局)，
+     * 构建完成后在主线程替换并重新布局
+     * (此方法需在主线程调用)
      */
-    private boolean isLoopScrollMode() {
-        return mScrollMode == SCROLL_MODE_LOOP;
+    public void updatePathAsync(Path path) {
+        if (path == null) {
+            return;
+        }
+        //空Path在这里就抛出，不要等到后台线程
+        if (path.isEmpty()) {
+            throw new NullPointerException("path is empty!");
+        }
+        mPath = path;
+        isPathAsync = true;
+        //复制一份，防止外部在构建过程中修改Path
+        final Path snapshot = new Path(path);
+        final float precision = mPrecision;
+        final float maxPositionError = mMaxPositionError;
+        final float maxAngleError = mMaxAngleError;
+        final boolean packed = isKeyframesPacked;
+        final int generation = ++mPathGeneration;
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        getKeyframesExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Keyframes keyframes = createKeyframes(snapshot, precision, maxPositionError, maxAngleError, packed);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        //期间又调用了updatePath (或者已经detach了)，这个结果已经过期了
+                        if (generation == mPathGeneration) {
+                            applyKeyframes(keyframes);
+                        } else {
+                            KeyframesCache.getInstance().release(keyframes);
+                        }
+                    }
+                });
+            }
+        });
     }
 
     /**
-     * @return 滚动模式是否为 溢出模式
+     * 根据采样方式构建关键帧
      */
-    private boolean isOverflowMode() {
-        return mScrollMode == SCROLL_MODE_OVERFLOW;
+    private static Keyframes createKeyframes(Path path, float precision, float maxPositionError,
+                                             float maxAngleError, boolean packed) {
+        boolean isAdaptive = maxPositionError > 0;
+        //同一个Path (采样方式也相同) 之前已经采样过的话，直接复用
+        KeyframesCache cache = KeyframesCache.getInstance();
+        long key = KeyframesCache.computeKey(path, isAdaptive ? 0 : precision,
+                maxPositionError, maxAngleError, packed);
+        PathSignature signature = PathSignature.of(path);
+        Keyframes keyframes = cache.acquire(key, signature);
+        if (keyframes != null) {
+            return keyframes;
+        }
+        keyframes = isAdaptive ? new Keyframes(path, maxPositionError, maxAngleError) : new Keyframes(path, precision);
+        if (packed) {
+            keyframes.pack();
+        }
+        return cache.put(key, signature, keyframes);
     }
 
     /**
-     * @return Item总长度
+     * 设置关键帧是否压缩存储 (坐标和角度都用16位来保存，内存占用减半)
      */
-    private int getItemLength() {
-        //这里 +1 是为了让最后一个item 显示出来 (让最后一个item的距离相对于Path长度的百分比<1，
-        // 即使其满足mKeyframes.getValue()方法里面获取有效坐标点的条件)
-        return getItemCount() * mItemOffset - mItemOffset + 1;
+    public void setKeyframesPacked(boolean packed) {
+        if (isKeyframesPacked != packed) {
+            isKeyframesPacked = packed;
+            rebuildKeyframes();
+        }
     }
 
     /**
-     * 根据当前设置的滚动方向来获取对应的滚动偏移量
+     * 设置固定精度采样时的采样精度 (默认0.5px)，
+     * 开启插值后可以适当调大 (例如2~5px) 以节省内存
+     *
+     * @param precision 采样精度 (px)
      */
-    private float getScrollOffset() {
-        return mOrientation == RecyclerView.VERTICAL ? mOffsetY : mOffsetX;
+    public void setSamplingPrecision(float precision) {
+        if (precision <= 0) {
+            throw new IllegalArgumentException("precision must be > 0 !!!");
+        }
+        if (mPrecision != precision) {
+            mPrecision = precision;
+            rebuildKeyframes();
+        }
     }
 
-    @Override
-    public boolean canScrollVertically() {
-        return mOrientation == RecyclerView.VERTICAL;
+    /**
+     * 设置获取Item坐标时是否在相邻的采样点之间插值
+     * (自适应采样时总是会插值)
+     */
+    public void setInterpolationEnable(boolean enable) {
+        if (isInterpolationEnable != enable) {
+            isInterpolationEnable = enable;
+            requestLayout();
+        }
     }
 
-    @Override
-    public boolean canScrollHorizontally() {
-        return mOrientation == RecyclerView.HORIZONTAL;
+    /**
+     * 设置自适应采样 (只在Path弯曲的地方密集采样，能大幅减少直线和平缓曲线所占用的内存)
+     *
+     * @param maxPositionError 所允许的最大位置误差 (px)，传0则恢复默认的固定精度采样
+     * @param maxAngleError    所允许的最大角度误差 (度)
+     */
+    public void setAdaptiveSampling(float maxPositionError, float maxAngleError) {
+        if (maxPositionError < 0 || maxAngleError < 0) {
+            throw new IllegalArgumentException("error can not be negative!");
+        }
+        if (maxPositionError > 0 && maxAngleError == 0) {
+            throw new IllegalArgumentException("maxAngleError must be > 0 !!!");
+        }
+        if (mMaxPositionError != maxPositionError || mMaxAngleError != maxAngleError) {
+            mMaxPositionError = maxPositionError;
+            mMaxAngleError = maxAngleError;
+            rebuildKeyframes();
+        }
     }
 
     /**
-     * 更新Path
+     * 采样方式改变后，用当前的Path重新构建关键帧
      */
-    public void updatePath(Path path) {
-        if (path != null) {
-            mKeyframes = new Keyframes(path);
-            if (mItemOffset == 0) {
-                throw new IllegalStateException("itemOffset must be > 0 !!!");
+    private void rebuildKeyframes() {
+        if (mPath != null) {
+            if (isPathAsync) {
+                updatePathAsync(mPath);
+            } else {
+                updatePath(mPath);
             }
-            //这里 +1 是为了多显示一个item
-            // 调整前：       ___0___1___2___3___4___5
+        }
+    }
 
-            // 调整后(不+1):  0___1___2___3___4___5___
+    /**
+     * 替换关键帧并刷新
+     */
+    private void applyKeyframes(Keyframes keyframes) {
+        //同时会刷新屏幕中能显示的Item个数
+        mCore.setPathLength(keyframes.getPathLength());
+        //关键帧可能被其他实例共用，所以不能直接release
+        KeyframesCache.getInstance().release(mKeyframes);
+        mKeyframes = keyframes;
+        requestLayout();
+    }
 
-            // 调整后(+1):    0___1___2___3___4___5___6
-            mItemCountInScreen = mKeyframes.getPathLength() / mItemOffset + 1;
+    private static synchronized ExecutorService getKeyframesExecutor() {
+        if (sKeyframesExecutor == null) {
+            sKeyframesExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable r) {
+                    Thread thread = new Thread(r, "PathLayoutManager-Keyframes");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
         }
-        requestLayout();
+        return sKeyframesExecutor;
     }
 
     /**
@@ -633,16 +845,57 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      * @param itemOffset Item间距
      */
     public void setItemOffset(int itemOffset) {
-        if (mItemOffset != itemOffset && itemOffset > 0) {
-            mItemOffset = itemOffset;
-//            mItemOffset改变后要刷新mItemCountInScreen
+        if (mCore.getItemOffset() != itemOffset && itemOffset > 0) {
+//            同时会刷新屏幕中能显示的Item个数
+            mCore.setItemOffset(itemOffset);
             if (mKeyframes != null) {
-                mItemCountInScreen = mKeyframes.getPathLength() / mItemOffset + 1;
                 requestLayout();
             }
         }
     }
 
+    /**
+     * 设置是否只通过translation来定位Item：
+     * 开启后Item只会在尺寸改变时才layout (固定在RecyclerView的左上角)，
+     * 滚动时通过translationX/Y、rotation和scale移动Item，只会修改RenderNode的属性，不会触发Item内部的重新布局
+     * <p>
+     * 注意：默认的ItemAnimator会以布局时设置的translation为基准播放位移和change动画 (位移动画是直线移动，可以通过{@link #setPathAnimationEnable}让它沿着Path播放)，
+     * 但其他的ItemAnimator同样是修改translation的，两者会互相冲突，使用其他ItemAnimator时建议关闭Item的move和change动画 (或者setItemAnimator(null))；
+     * 另外ItemDecoration中通过getLeft()/getTop()获取的坐标也不再是Item的实际位置
+     */
+    public void setTransformPositioningEnable(boolean enable) {
+        if (isTransformPositioning != enable) {
+            isTransformPositioning = enable;
+            if (enable) {
+                isTranslationUsed = true;
+            } else {
+                //已经在屏幕中的Item要恢复原来的位置
+                for (int i = 0; i < getChildCount(); i++) {
+                    View child = getChildAt(i);
+                    child.setTranslationX(0);
+                    child.setTranslationY(0);
+                }
+            }
+            requestLayout();
+        }
+    }
+
+    /**
+     * 设置Item的位移动画是否沿着Path播放：
+     * 开启后Item会沿着Path移动到新的位置，并且在移动过程中改变旋转角度和缩放比例，
+     * 而不是从起点直线移动到终点 (在弯曲的Path上会穿过曲线，结束时再突然转到正确的角度)
+     * <p>
+     * 只对默认的ItemAnimator有效，新增和删除的Item依然是渐变动画
+     */
+    public void setPathAnimationEnable(boolean enable) {
+        if (isPathAnimationEnable != enable) {
+            isPathAnimationEnable = enable;
+            if (mItemAnimator != null) {
+                mItemAnimator.setPathProvider(enable ? mItemPathProvider : null);
+            }
+        }
+    }
+
     /**
      * 设置Item是否保持垂直
      */
@@ -661,8 +914,8 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      *             {@link #SCROLL_MODE_LOOP}
      */
     public void setScrollMode(@ScrollMode int mode) {
-        if (mode != mScrollMode) {
-            mScrollMode = mode;
+        if (mode != mCore.getScrollMode()) {
+            mCore.setScrollMode(mode);
             requestLayout();
         }
     }
@@ -697,6 +950,52 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
         mCacheCount = count;
     }
 
+    /**
+     * 设置滚动时预取的Item个数 (默认1个)，
+     * RecyclerView会在每一帧的空闲时间里提前创建并绑定这些即将进入Path的Item
+     *
+     * @param count 传0则不预取
+     */
+    public void setPrefetchItemCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count can not be negative!");
+        }
+        mPrefetchItemCount = count;
+        mPrefetchPositions = new int[count * 2];
+    }
+
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+                                                 LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        int delta = canScrollVertically() ? dy : dx;
+        if (delta == 0 || mKeyframes == null || getChildCount() == 0 || state.getItemCount() == 0) {
+            return;
+        }
+        int count = mCore.findPrefetchPositions(getScrollOffset(), delta, getItemCount(), state.getItemCount(),
+                mPrefetchItemCount, mPrefetchPositions);
+        for (int i = 0; i < count; i++) {
+            layoutPrefetchRegistry.addPosition(mPrefetchPositions[i * 2], mPrefetchPositions[i * 2 + 1]);
+        }
+    }
+
+    /**
+     * 嵌套在其他RecyclerView中时，预取首次布局时会显示的Item
+     */
+    @Override
+    public void collectInitialPrefetchPositions(int adapterItemCount, LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        if (mKeyframes == null || adapterItemCount == 0) {
+            return;
+        }
+        float scrollOffset = getScrollOffset();
+        int end = mCore.computeLayoutRange(scrollOffset, adapterItemCount, adapterItemCount);
+        for (int i = mCore.getFirstVisibleItemPos(); i < end; i++) {
+            float fraction = mCore.getItemFraction(i, scrollOffset, adapterItemCount);
+            if (fraction >= 0 && fraction < 1) {
+                layoutPrefetchRegistry.addPosition(mCore.getAdapterPosition(i, adapterItemCount), 0);
+            }
+        }
+    }
+
     @Override
     public void onScrollStateChanged(int state) {
         isFlinging = state == RecyclerView.SCROLL_STATE_SETTLING;
@@ -705,8 +1004,22 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
                 stopFixingAnimation();
                 break;
             case RecyclerView.SCROLL_STATE_IDLE:
-                if (isAutoSelect) {
-                    smoothScrollToPosition(findClosestPosition());
+                boolean isFixingFinished = isFixing;
+                int fixingPosition = mSmoothScroller == null ? -1 : mSmoothScroller.mPosition;
+                isFixing = false;
+                if (isAutoSelect && mKeyframes != null) {
+                    if (isFixingFinished) {
+                        //平滑滚动结束
+                        dispatchSelected(fixingPosition);
+                    } else {
+                        int position = findClosestPosition();
+                        //已经在落点上了，不需要再滚动
+                        if (position > -1 && getDistance(position) == 0) {
+                            dispatchSelected(position);
+                        } else {
+                            smoothScrollToPosition(position);
+                        }
+                    }
                 }
                 break;
             default:
@@ -718,16 +1031,22 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      * 停止动画
      */
     private void stopFixingAnimation() {
-        if (mAnimator != null && mAnimator.isRunning()) {
-            mAnimator.cancel();
+        isFixing = false;
+        if (mSmoothScroller != null && mSmoothScroller.isRunning()) {
+            mSmoothScroller.cancel();
+        }
+    }
+
+    private void dispatchSelected(int position) {
+        if (position > -1 && mItemSelectedListener != null) {
+            mItemSelectedListener.onSelected(position);
         }
     }
 
     @Override
     public void scrollToPosition(int position) {
         int itemCount = getItemCount();
-        if (position > -1 && position < itemCount) {
-            checkKeyframes();
+        if (position > -1 && position < itemCount && mKeyframes != null) {
             int distance = getDistance(position);
             if (canScrollVertically()) {
                 updateOffsetY(distance);
@@ -742,47 +1061,25 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      * 根据传入的position来获取离目标落点的最近距离
      */
     private int getDistance(int position) {
-        PosTan posTan = getVisiblePosTanByPosition(position);
+        checkKeyframes();
+        int itemCount = getItemCount();
+        int totalItemCount = mState == null ? itemCount : mState.getItemCount();
+        float scrollOffset = getScrollOffset();
+        float fraction = mCore.getVisibleItemFraction(position, scrollOffset, itemCount, totalItemCount);
         float distance;
         //如果这个item不可见
-        if (posTan == null) {
-            int itemCount = getItemCount();
-            int closestPosition = findClosestPosition();
-            int count = 0;
-            do {
-                count++;
-            } while (fixOverflowIndex(closestPosition + count, itemCount) != position);
-            //如果设置了无限滚动的话，判断哪一边更接近来决定是向前滚动还是向后滚动
-            if (isSatisfiedLoopScroll() &&
-                    count < Math.abs(closestPosition - position)) {
-                position = closestPosition + count;
-            }
-            //计算选中position与Path起点之间的距离。
-            distance = position * mItemOffset - getScrollOffset();
+        if (fraction < 0) {
+            distance = mCore.getInvisibleItemDistance(position, findClosestPosition(), scrollOffset, itemCount);
             //再加上自动选中落点的这段距离(因为我们看到的向下滑动，其实是显示的区域向上移动了，所以这里是减)
         } else {
             //如果屏幕中存在这个item的话，直接偏移屏幕中的
-            distance = mKeyframes.getPathLength() * posTan.fraction;
+            distance = mKeyframes.getPathLength() * fraction;
         }
         //定位到设定的落点位置
         distance -= mKeyframes.getPathLength() * mAutoSelectFraction;
         return (int) distance;
     }
 
-    @Nullable
-    private PosTan getVisiblePosTanByPosition(int position) {
-        List<PosTan> needLayoutList = getNeedLayoutItems();
-        PosTan posTan = null;
-        for (int i = 0; i < needLayoutList.size(); i++) {
-            PosTan tmp = needLayoutList.get(i);
-            if (tmp.index == position) {
-                posTan = tmp;
-                break;
-            }
-        }
-        return posTan;
-    }
-
     @Override
     public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position) {
         smoothScrollToPosition(position);
@@ -794,86 +1091,144 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      * @param position 目标Item索引
      */
     public void smoothScrollToPosition(int position) {
-        if (position > -1 && position < getItemCount() && mState != null) {
-            checkKeyframes();
-            startValueAnimator(position);
+        if (position > -1 && position < getItemCount() && mState != null && mKeyframes != null) {
+            startSmoothScroll(position);
         }
     }
 
     /**
-     * 播放平滑滚动动画并更新偏移量
+     * 通过RecyclerView的SmoothScroller平滑滚动，每一帧只会调用scrollBy来移动Item，不会触发整个布局
      *
      * @param position 目标Item索引
      */
-    private void startValueAnimator(final int position) {
-        //如果上一次的动画未播放完，就先取消它
+    private void startSmoothScroll(int position) {
+        if (mFixingInterpolator == null) {
+            mFixingInterpolator = new AccelerateDecelerateInterpolator();
+        }
+        startSmoothScroll(new FixingSmoothScroller(), position);
+    }
+
+    private void startSmoothScroll(FixingSmoothScroller smoothScroller, int position) {
+        //如果上一次的滚动未完成，就先取消它
         stopFixingAnimation();
+        mSmoothScroller = smoothScroller;
+        mSmoothScroller.setTargetPosition(position);
+        isFixing = true;
+        startSmoothScroll(mSmoothScroller);
+    }
 
-        int distance = getDistance(position);
+    /**
+     * 滚动距离在开始时就能算出来，所以只需设置一次：
+     * 目标Item已在屏幕中时，第一次回调的是onTargetFound，否则是onSeekTargetStep
+     * 之后目标Item进入屏幕时不再修改，RecyclerView会继续把剩下的距离滚完
+     */
+    private class FixingSmoothScroller extends RecyclerView.SmoothScroller {
 
-        mAnimator = ValueAnimator.ofFloat(0, distance).setDuration(mFixingAnimationDuration);
-        mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+        private int mPosition = -1;
+        private boolean isStarted;
+        private boolean isDistancePreset; //惯性滚动时距离和时长已经预先算好
+        private int mDistance;
+        private int mDuration;
 
-            private float mLastScrollOffset;
+        FixingSmoothScroller() {
+        }
 
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float currentValue = (float) animation.getAnimatedValue();
-                float offset = currentValue - mLastScrollOffset;
-                if (canScrollVertically()) {
-                    updateOffsetY(offset);
-                } else {
-                    updateOffsetX(offset);
-                }
-                requestLayout();
-                mLastScrollOffset = currentValue;
-            }
-        });
-        mAnimator.addListener(new AnimatorListenerAdapter() {
+        /**
+         * @param distance 滚动距离
+         * @param duration 滚动时长
+         */
+        FixingSmoothScroller(int distance, int duration) {
+            isDistancePreset = true;
+            mDistance = distance;
+            mDuration = duration;
+        }
 
-            boolean isCanceled;
+        @Override
+        protected void onStart() {
+            mPosition = getTargetPosition();
+        }
 
-            @Override
-            public void onAnimationCancel(Animator animation) {
-                isCanceled = true;
-            }
+        @Override
+        protected void onStop() {
+        }
 
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                if (!isCanceled && isAutoSelect) {
-                    if (mItemSelectedListener != null) {
-                        mItemSelectedListener.onSelected(position);
-                    }
-                }
+        @Override
+        protected void onSeekTargetStep(int dx, int dy, RecyclerView.State state, Action action) {
+            start(action);
+        }
+
+        @Override
+        protected void onTargetFound(View targetView, RecyclerView.State state, Action action) {
+            start(action);
+        }
+
+        private void start(Action action) {
+            if (isStarted || mKeyframes == null) {
+                return;
             }
-        });
-        mAnimator.start();
+            isStarted = true;
+            if (isDistancePreset) {
+                action.update(canScrollHorizontally() ? mDistance : 0, canScrollVertically() ? mDistance : 0,
+                        mDuration, mFlingInterpolator);
+            } else {
+                int distance = getDistance(mPosition);
+                action.update(canScrollHorizontally() ? distance : 0, canScrollVertically() ? distance : 0,
+                        (int) Math.max(1, mFixingAnimationDuration), mFixingInterpolator);
+            }
+        }
+
+        void cancel() {
+            stop();
+        }
     }
 
     /**
-     * 找出离目标落点最近的Item索引
+     * 自动选中时的惯性滚动：根据速度预测停下的位置，在那里找出离落点最近的Item，
+     * 然后只用一个减速动画直接滚到让它停在落点上，不用等惯性滚动停下后再滚一次
+     *
+     * @return 返回false时交给RecyclerView默认处理
      */
-    private int findClosestPosition() {
-        int hitPos = -1;
-        List<PosTan> posTanList = getNeedLayoutItems();
-        if (posTanList.size() > 1) {
-            hitPos = posTanList.get(0).index;
-            float hitFraction = Math.abs(posTanList.get(0).fraction - mAutoSelectFraction);
-            for (PosTan tmp : posTanList) {
-                float tempFraction = Math.abs(tmp.fraction - mAutoSelectFraction);
-                //跟现在认为最近的距离做比较，取更近的那一方
-                if (tempFraction < hitFraction) {
-                    hitPos = tmp.index;
-                    hitFraction = tempFraction;
-                }
-            }
+    private boolean onFling(int velocityX, int velocityY) {
+        int itemCount = getItemCount();
+        if (!isAutoSelect || !isFlingEnable || mKeyframes == null || mState == null
+                || mFlingPredictor == null || itemCount == 0) {
+            return false;
         }
-        if (hitPos < 0) {
-            if (!posTanList.isEmpty()) {
-                hitPos = posTanList.get(0).index;
-            }
+        int velocity = canScrollVertically() ? velocityY : velocityX;
+        if (velocity == 0) {
+            return false;
+        }
+        //预测滚动距离
+        mFlingPredictor.fling(0, 0, velocity, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+        float flingDistance = mFlingPredictor.getFinalX();
+        mFlingPredictor.forceFinished(true);
+
+        int totalItemCount = mState.getItemCount();
+        float scrollOffset = getScrollOffset();
+        float predictedOffset = mCore.predictFlingOffset(scrollOffset, flingDistance, itemCount);
+        int position = mCore.findClosestPosition(predictedOffset, itemCount, totalItemCount, mAutoSelectFraction);
+        if (position < 0) {
+            return false;
+        }
+        int distance = Math.round(mCore.getFlingSnapDistance(position, scrollOffset, flingDistance,
+                itemCount, totalItemCount, mAutoSelectFraction));
+        if (mFlingInterpolator == null) {
+            mFlingInterpolator = new DecelerateInterpolator();
         }
-        return hitPos;
+        //DecelerateInterpolator的初速度是 2 * 距离 / 时长，按手指离开时的速度来算时长，动画才能跟手势衔接上
+        int duration = (int) Math.min(MAX_FLING_DURATION, 2000L * Math.abs(distance) / Math.abs(velocity));
+        startSmoothScroll(new FixingSmoothScroller(distance, Math.max(1, duration)), position);
+        return true;
+    }
+
+    /**
+     * 找出离目标落点最近的Item索引
+     */
+    private int findClosestPosition() {
+        checkKeyframes();
+        int itemCount = getItemCount();
+        int totalItemCount = mState == null ? itemCount : mState.getItemCount();
+        return mCore.findClosestPosition(getScrollOffset(), itemCount, totalItemCount, mAutoSelectFraction);
     }
 
     /**
@@ -894,6 +1249,7 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
     public void setAutoSelect(boolean isAutoSelect) {
         if (this.isAutoSelect != isAutoSelect) {
             this.isAutoSelect = isAutoSelect;
+            updateFlingListener();
             if (isAutoSelect && mKeyframes != null) {
                 onScrollStateChanged(RecyclerView.SCROLL_STATE_IDLE);
             }
@@ -978,7 +1334,10 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
      * 设置惯性滚动是否开启
      */
     public void setFlingEnable(boolean enable) {
-        isFlingEnable = enable;
+        if (isFlingEnable != enable) {
+            isFlingEnable = enable;
+            updateFlingListener();
+        }
     }
 
     /**
@@ -994,73 +1353,252 @@ public class PathLayoutManager extends RecyclerView.LayoutManager implements Rec
         }
     }
 
+    /**
+     * 只在自动选中和惯性滚动都开启时才接管惯性滚动，其中一个关闭了就移除
+     * (已经设置了其他的OnFlingListener (例如SnapHelper) 的话就不接管了)
+     */
+    private void updateFlingListener() {
+        RecyclerView view = mAttachedView;
+        if (view == null) {
+            return;
+        }
+        boolean isInstalled = mFlingListener != null && view.getOnFlingListener() == mFlingListener;
+        if (isAutoSelect && isFlingEnable) {
+            if (!isInstalled && view.getOnFlingListener() == null) {
+                if (mFlingListener == null) {
+                    mFlingListener = new RecyclerView.OnFlingListener() {
+                        @Override
+                        public boolean onFling(int velocityX, int velocityY) {
+                            return PathLayoutManager.this.onFling(velocityX, velocityY);
+                        }
+                    };
+                }
+                if (mFlingPredictor == null) {
+                    mFlingPredictor = new OverScroller(view.getContext());
+                }
+                view.setOnFlingListener(mFlingListener);
+            }
+        } else if (isInstalled) {
+            view.setOnFlingListener(null);
+        }
+    }
+
+    @Override
+    public void onAttachedToWindow(RecyclerView view) {
+        super.onAttachedToWindow(view);
+        mAttachedView = view;
+        updateFlingListener();
+    }
+
     @Override
     public void onDetachedFromWindow(RecyclerView view, RecyclerView.Recycler recycler) {
+        if (mFlingListener != null && view.getOnFlingListener() == mFlingListener) {
+            view.setOnFlingListener(null);
+        }
+        mAttachedView = null;
+        view.removeCallbacks(mPendingUpdateRunnable);
+        clearPendingUpdate();
+        //之后才完成的异步构建结果直接释放，否则没有人会再释放它在缓存中的引用
+        mPathGeneration++;
+        mFlingPredictor = null;
         removeAndRecycleAllViews(recycler);
         if (mKeyframes != null) {
-            mKeyframes.release();
+            KeyframesCache.getInstance().release(mKeyframes);
             mKeyframes = null;
         }
         mScaleRatio = null;
+        mPath = null;
         mItemAnimator = null;
         mRecycler = null;
         mState = null;
         stopFixingAnimation();
-        mAnimator = null;
+        mSmoothScroller = null;
     }
 
     @Override
     public RecyclerView.LayoutParams generateDefaultLayoutParams() {
-        return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+        return new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
                 ViewGroup.LayoutParams.WRAP_CONTENT);
     }
 
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(Context c, AttributeSet attrs) {
+        return new LayoutParams(c, attrs);
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(ViewGroup.LayoutParams lp) {
+        if (lp instanceof RecyclerView.LayoutParams) {
+            return new LayoutParams((RecyclerView.LayoutParams) lp);
+        } else if (lp instanceof ViewGroup.MarginLayoutParams) {
+            return new LayoutParams((ViewGroup.MarginLayoutParams) lp);
+        } else {
+            return new LayoutParams(lp);
+        }
+    }
+
+    @Override
+    public boolean checkLayoutParams(RecyclerView.LayoutParams lp) {
+        return lp instanceof LayoutParams;
+    }
+
     @Override
     public PointF computeScrollVectorForPosition(int targetPosition) {
-        return null;
+        if (mKeyframes == null || getItemCount() == 0) {
+            return null;
+        }
+        //滚动方向
+        float direction = Math.signum(getDistance(targetPosition));
+        return canScrollVertically() ? new PointF(0, direction) : new PointF(direction, 0);
     }
 
     @Override
     public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
-        delayNotifyDataSetChanged(recyclerView);
+        //插入和删除会影响后面所有Item的索引
+        postPendingUpdate(recyclerView, positionStart, Integer.MAX_VALUE);
     }
 
     @Override
     public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
-        delayNotifyDataSetChanged(recyclerView);
+        postPendingUpdate(recyclerView, positionStart, Integer.MAX_VALUE);
     }
 
     @Override
     public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
-        delayNotifyDataSetChanged(recyclerView);
+        postPendingUpdate(recyclerView, positionStart, positionStart + itemCount - 1);
     }
 
     @Override
     public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount, Object payload) {
-        delayNotifyDataSetChanged(recyclerView);
+        postPendingUpdate(recyclerView, positionStart, positionStart + itemCount - 1);
     }
 
     @Override
     public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
-        delayNotifyDataSetChanged(recyclerView);
+        postPendingUpdate(recyclerView, Math.min(from, to), Math.max(from, to) + itemCount - 1);
     }
 
-    private volatile boolean isPosting;
+    private int mPendingUpdateStart = Integer.MAX_VALUE, mPendingUpdateEnd = -1; //还没处理的数据变动范围 (合并后)
+    private RecyclerView mPendingUpdateView;
+    private boolean isUpdatePosted;
 
-    private void delayNotifyDataSetChanged(final RecyclerView recyclerView) {
-        if (recyclerView.isComputingLayout()) {
-            isPosting = true;
-            recyclerView.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    delayNotifyDataSetChanged(recyclerView);
+    /**
+     * 同一帧内的数据变动合并成一个范围，在下一帧只处理一次：
+     * 修正偏移量，如果变动范围跟屏幕中的Item有交集才重新布局
+     * (不再调用notifyDataSetChanged，没有变动的Item不会被重新绑定和测量)
+     */
+    private void postPendingUpdate(RecyclerView recyclerView, int start, int end) {
+        mPendingUpdateStart = Math.min(mPendingUpdateStart, start);
+        mPendingUpdateEnd = Math.max(mPendingUpdateEnd, end);
+        mPendingUpdateView = recyclerView;
+        if (!isUpdatePosted) {
+            isUpdatePosted = true;
+            recyclerView.postOnAnimation(mPendingUpdateRunnable);
+        }
+    }
+
+    private final Runnable mPendingUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            RecyclerView recyclerView = mPendingUpdateView;
+            if (recyclerView == null) {
+                return;
+            }
+            //还在布局中，下一帧再处理
+            if (recyclerView.isComputingLayout()) {
+                recyclerView.postOnAnimation(this);
+                return;
+            }
+            int start = mPendingUpdateStart, end = mPendingUpdateEnd;
+            clearPendingUpdate();
+            if (mKeyframes == null) {
+                return;
+            }
+            //删除Item后偏移量可能超出了范围
+            boolean isOffsetChanged = fixScrollOffset();
+            boolean isVisibleItemChanged = false;
+            for (int i = 0; i < getChildCount(); i++) {
+                int position = getPosition(getChildAt(i));
+                if (position >= start && position <= end) {
+                    isVisibleItemChanged = true;
+                    break;
                 }
-            }, 5);
-        } else {
-            if (isPosting) {
-                isPosting = false;
-                recyclerView.getAdapter().notifyDataSetChanged();
             }
+            if (isOffsetChanged || isVisibleItemChanged) {
+                requestLayout();
+            }
+        }
+    };
+
+    private void clearPendingUpdate() {
+        isUpdatePosted = false;
+        mPendingUpdateView = null;
+        mPendingUpdateStart = Integer.MAX_VALUE;
+        mPendingUpdateEnd = -1;
+    }
+
+    /**
+     * 按现在的Item个数修正偏移量
+     *
+     * @return 偏移量是否有改变
+     */
+    private boolean fixScrollOffset() {
+        int itemCount = getItemCount();
+        if (itemCount == 0) {
+            return false;
+        }
+        if (canScrollVertically()) {
+            float offset = mOffsetY;
+            mOffsetY = mCore.updateOffset(mOffsetY, 0, itemCount);
+            return offset != mOffsetY;
+        } else {
+            float offset = mOffsetX;
+            mOffsetX = mCore.updateOffset(mOffsetX, 0, itemCount);
+            return offset != mOffsetX;
+        }
+    }
+
+    /**
+     * 记录Item上一次的测量条件，以及已经设置的旋转角度和缩放比例
+     * (如果在外部修改了Item的rotation或scale，下一次布局时不会被覆盖回来)
+     */
+    public static class LayoutParams extends RecyclerView.LayoutParams {
+
+        private final Rect mMeasuredInsets = new Rect(); //测量时ItemDecoration的边距
+        private int mMeasuredWidth = -1, mMeasuredHeight = -1; //测量时RecyclerView的可用尺寸
+        private float mRotation = Float.NaN; //已经设置的旋转角度
+        private float mScale = Float.NaN; //已经设置的缩放比例
+        private float mFraction = Float.NaN; //最近一次布局时在Path上的位置
+        private float mTranslationX, mTranslationY; //通过translation定位时，最近一次布局所设置的translation
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(ViewGroup.MarginLayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(RecyclerView.LayoutParams source) {
+            super(source);
+        }
+
+        /**
+         * 清除记录，下一次布局时会重新测量和设置
+         */
+        void invalidate() {
+            mMeasuredWidth = -1;
+            mMeasuredHeight = -1;
+            mRotation = Float.NaN;
+            mScale = Float.NaN;
         }
     }
 
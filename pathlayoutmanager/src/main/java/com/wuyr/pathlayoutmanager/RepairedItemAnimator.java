@@ -4,14 +4,18 @@ import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
+import android.os.Build;
 import android.support.annotation.NonNull;
-import android.support.v4.view.ViewCompat;
+import android.support.annotation.Nullable;
+import android.support.v4.util.Pools;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.SimpleItemAnimator;
 import android.view.View;
-import android.view.ViewPropertyAnimator;
+import android.view.animation.AnimationUtils;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 /**
@@ -22,57 +26,134 @@ import java.util.List;
  * @see RecyclerView#setItemAnimator(RecyclerView.ItemAnimator)
  *
  * RecyclerView default ItemAnimator has bug on PathLayoutManager
+ * <p>
+ * 所有的动画都由同一个ValueAnimator驱动 (每一帧统一更新一次)，不再为每个Item创建ViewPropertyAnimator和Listener，
+ * 动画记录用完之后会回收复用，大批量更新数据时不会一下子创建大量的临时对象
+ * <p>
+ * 每个ViewHolder同一时间最多只有一个动画，通过索引找到它的动画记录，结束动画时不需要遍历列表；
+ * 被提前结束的记录只是标记为无效 (holder为null)，等下一次遍历列表时才移除和回收
  */
 public class RepairedItemAnimator extends SimpleItemAnimator {
-    private static final boolean DEBUG = false;
+    private static final int MAX_POOL_SIZE = 256; //每种动画记录最多缓存的个数
 
     private static TimeInterpolator sDefaultInterpolator;
+    private static Field sDurationScaleField; //API 26以下通过反射获取动画时长的缩放比例
 
-    private ArrayList<RecyclerView.ViewHolder> mPendingRemovals = new ArrayList<>();
-    private ArrayList<RecyclerView.ViewHolder> mPendingAdditions = new ArrayList<>();
+    private ArrayList<FadeInfo> mPendingRemovals = new ArrayList<>();
+    private ArrayList<FadeInfo> mPendingAdditions = new ArrayList<>();
     private ArrayList<MoveInfo> mPendingMoves = new ArrayList<>();
     private ArrayList<ChangeInfo> mPendingChanges = new ArrayList<>();
 
-    private ArrayList<ArrayList<RecyclerView.ViewHolder>> mAdditionsList = new ArrayList<>();
-    private ArrayList<ArrayList<MoveInfo>> mMovesList = new ArrayList<>();
-    private ArrayList<ArrayList<ChangeInfo>> mChangesList = new ArrayList<>();
+    //已经安排好开始时间的动画 (包括还在等待其他动画播放完的)
+    private ArrayList<FadeInfo> mFadeAnimations = new ArrayList<>();
+    private ArrayList<MoveInfo> mMoveAnimations = new ArrayList<>();
+    private ArrayList<ChangeInfo> mChangeAnimations = new ArrayList<>();
 
-    private ArrayList<RecyclerView.ViewHolder> mAddAnimations = new ArrayList<>();
-    private ArrayList<RecyclerView.ViewHolder> mMoveAnimations = new ArrayList<>();
-    private ArrayList<RecyclerView.ViewHolder> mRemoveAnimations = new ArrayList<>();
-    private ArrayList<RecyclerView.ViewHolder> mChangeAnimations = new ArrayList<>();
+    //这一帧播放完的动画，等所有动画都更新完之后再统一回调
+    private ArrayList<FadeInfo> mFinishedFades = new ArrayList<>();
+    private ArrayList<MoveInfo> mFinishedMoves = new ArrayList<>();
+    private ArrayList<ChangeInfo> mFinishedChanges = new ArrayList<>();
+
+    //ViewHolder -> 等待中或正在播放的动画记录
+    private final IdentityHashMap<RecyclerView.ViewHolder, FadeInfo> mFadeIndex = new IdentityHashMap<>();
+    private final IdentityHashMap<RecyclerView.ViewHolder, MoveInfo> mMoveIndex = new IdentityHashMap<>();
+    private final IdentityHashMap<RecyclerView.ViewHolder, ChangeInfo> mChangeIndex = new IdentityHashMap<>();
+
+    private final Pools.SimplePool<FadeInfo> mFadeInfoPool = new Pools.SimplePool<>(MAX_POOL_SIZE);
+    private final Pools.SimplePool<MoveInfo> mMoveInfoPool = new Pools.SimplePool<>(MAX_POOL_SIZE);
+    private final Pools.SimplePool<ChangeInfo> mChangeInfoPool = new Pools.SimplePool<>(MAX_POOL_SIZE);
+
+    private ValueAnimator mTicker; //只用来接收每一帧的回调，进度由每个动画自己的开始时间计算
+    private float mDurationScale = 1; //系统设置的动画时长缩放比例 (开发者选项、省电模式等)
+    private PathProvider mPathProvider; //不为null时，位移动画沿着Path播放
+    private LayoutTranslationProvider mLayoutTranslationProvider; //不为null时，位移和change动画以布局时设置的translation为基准
+    private final float[] mPathTransform = new float[4];
+
+    /**
+     * 新增和删除 (透明度动画)
+     */
+    private static class FadeInfo {
+        RecyclerView.ViewHolder holder;
+        boolean isAddition;
+        long startTime;
+        boolean isStarted;
+        float fromAlpha; //开始播放时的透明度
+
+        void clear() {
+            holder = null;
+            isStarted = false;
+        }
+    }
 
     private static class MoveInfo {
         RecyclerView.ViewHolder holder;
         int fromX, fromY, toX, toY;
-
-        MoveInfo(RecyclerView.ViewHolder holder, int fromX, int fromY, int toX, int toY) {
+        float fromTranslationX, fromTranslationY; //开始播放时相对于布局位置的translation
+        boolean isAlongPath; //是否沿着Path移动
+        float fromFraction, toFraction;
+        float fraction; //沿着Path移动时，当前所在的位置
+        long startTime; //在删除动画播放完之后才开始
+        boolean isStarted;
+
+        void set(RecyclerView.ViewHolder holder, int fromX, int fromY, int toX, int toY) {
             this.holder = holder;
             this.fromX = fromX;
             this.fromY = fromY;
             this.toX = toX;
             this.toY = toY;
+            isAlongPath = false;
+        }
+
+        void setAlongPath(RecyclerView.ViewHolder holder, float fromFraction, float toFraction) {
+            this.holder = holder;
+            this.fromFraction = fromFraction;
+            this.toFraction = toFraction;
+            fraction = fromFraction;
+            isAlongPath = true;
+        }
+
+        void clear() {
+            holder = null;
+            isStarted = false;
         }
     }
 
+    /**
+     * 额外记录Item在Path上的位置
+     */
+    private static class PathHolderInfo extends ItemHolderInfo {
+        float fraction = Float.NaN;
+    }
+
     private static class ChangeInfo {
         public RecyclerView.ViewHolder oldHolder, newHolder;
         int fromX, fromY, toX, toY;
-
-        private ChangeInfo(RecyclerView.ViewHolder oldHolder, RecyclerView.ViewHolder newHolder) {
+        long startTime;
+        boolean isStarted;
+        //开始播放时两个Item相对于布局位置的translation，以及透明度
+        float oldTranslationX, oldTranslationY, oldAlpha;
+        float newTranslationX, newTranslationY, newAlpha;
+
+        void set(RecyclerView.ViewHolder oldHolder, RecyclerView.ViewHolder newHolder,
+                 int fromX, int fromY, int toX, int toY) {
             this.oldHolder = oldHolder;
             this.newHolder = newHolder;
-        }
-
-        ChangeInfo(RecyclerView.ViewHolder oldHolder, RecyclerView.ViewHolder newHolder,
-                   int fromX, int fromY, int toX, int toY) {
-            this(oldHolder, newHolder);
             this.fromX = fromX;
             this.fromY = fromY;
             this.toX = toX;
             this.toY = toY;
         }
 
+        boolean isEnded() {
+            return oldHolder == null && newHolder == null;
+        }
+
+        void clear() {
+            oldHolder = null;
+            newHolder = null;
+            isStarted = false;
+        }
+
         @Override
         public String toString() {
             return "ChangeInfo{"
@@ -88,173 +169,89 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
 
     @Override
     public void runPendingAnimations() {
-        boolean removalsPending = !mPendingRemovals.isEmpty();
-        boolean movesPending = !mPendingMoves.isEmpty();
-        boolean changesPending = !mPendingChanges.isEmpty();
-        boolean additionsPending = !mPendingAdditions.isEmpty();
-        if (!removalsPending && !movesPending && !additionsPending && !changesPending) {
-            // nothing to animate
-            return;
-        }
+        //不需要post，到了开始时间由mTicker开始播放
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        mDurationScale = getDurationScale();
         // First, remove stuff
-        for (RecyclerView.ViewHolder holder : mPendingRemovals) {
-            animateRemoveImpl(holder);
-        }
-        mPendingRemovals.clear();
+        boolean removalsPending = scheduleFades(mPendingRemovals, now);
         // Next, move stuff
-        if (movesPending) {
-            final ArrayList<MoveInfo> moves = new ArrayList<>(mPendingMoves);
-            mMovesList.add(moves);
-            mPendingMoves.clear();
-            Runnable mover = new Runnable() {
-                @Override
-                public void run() {
-                    for (MoveInfo moveInfo : moves) {
-                        animateMoveImpl(moveInfo.holder, moveInfo.fromX, moveInfo.fromY,
-                                moveInfo.toX, moveInfo.toY);
-                    }
-                    moves.clear();
-                    mMovesList.remove(moves);
-                }
-            };
-            if (removalsPending) {
-                View view = moves.get(0).holder.itemView;
-                ViewCompat.postOnAnimationDelayed(view, mover, getRemoveDuration());
+        long moveStartTime = now + (removalsPending ? scaleDuration(getRemoveDuration()) : 0);
+        boolean movesPending = false;
+        for (int i = 0; i < mPendingMoves.size(); i++) {
+            MoveInfo info = mPendingMoves.get(i);
+            if (info.holder == null) {
+                recycle(info);
             } else {
-                mover.run();
+                info.startTime = moveStartTime;
+                mMoveAnimations.add(info);
+                movesPending = true;
             }
         }
+        mPendingMoves.clear();
         // Next, change stuff, to run in parallel with move animations
-        if (changesPending) {
-            final ArrayList<ChangeInfo> changes = new ArrayList<>(mPendingChanges);
-            mChangesList.add(changes);
-            mPendingChanges.clear();
-            Runnable changer = new Runnable() {
-                @Override
-                public void run() {
-                    for (ChangeInfo change : changes) {
-                        animateChangeImpl(change);
-                    }
-                    changes.clear();
-                    mChangesList.remove(changes);
-                }
-            };
-            if (removalsPending) {
-                RecyclerView.ViewHolder holder = changes.get(0).oldHolder;
-                ViewCompat.postOnAnimationDelayed(holder.itemView, changer, getRemoveDuration());
+        boolean changesPending = false;
+        for (int i = 0; i < mPendingChanges.size(); i++) {
+            ChangeInfo info = mPendingChanges.get(i);
+            if (info.isEnded()) {
+                recycle(info);
             } else {
-                changer.run();
+                info.startTime = moveStartTime;
+                mChangeAnimations.add(info);
+                changesPending = true;
             }
         }
+        mPendingChanges.clear();
         // Next, add stuff
-        if (additionsPending) {
-            final ArrayList<RecyclerView.ViewHolder> additions = new ArrayList<>(mPendingAdditions);
-            mAdditionsList.add(additions);
-            mPendingAdditions.clear();
-            Runnable adder = new Runnable() {
-                @Override
-                public void run() {
-                    for (RecyclerView.ViewHolder holder : additions) {
-                        animateAddImpl(holder);
-                    }
-                    additions.clear();
-                    mAdditionsList.remove(additions);
-                }
-            };
-            if (removalsPending || movesPending || changesPending) {
-                long removeDuration = removalsPending ? getRemoveDuration() : 0;
-                long moveDuration = movesPending ? getMoveDuration() : 0;
-                long changeDuration = changesPending ? getChangeDuration() : 0;
-                long totalDelay = removeDuration + Math.max(moveDuration, changeDuration);
-                View view = additions.get(0).itemView;
-                ViewCompat.postOnAnimationDelayed(view, adder, totalDelay);
+        long moveDuration = movesPending ? scaleDuration(getMoveDuration()) : 0;
+        long changeDuration = changesPending ? scaleDuration(getChangeDuration()) : 0;
+        boolean additionsPending = scheduleFades(mPendingAdditions, moveStartTime + Math.max(moveDuration, changeDuration));
+        if (removalsPending || movesPending || changesPending || additionsPending) {
+            startTicker();
+        }
+    }
+
+    /**
+     * 把等待中的透明度动画移到播放列表 (已经被结束的直接回收)
+     *
+     * @return 是否有需要播放的动画
+     */
+    private boolean scheduleFades(List<FadeInfo> pendingList, long startTime) {
+        boolean isScheduled = false;
+        for (int i = 0; i < pendingList.size(); i++) {
+            FadeInfo info = pendingList.get(i);
+            if (info.holder == null) {
+                recycle(info);
             } else {
-                adder.run();
+                info.startTime = startTime;
+                mFadeAnimations.add(info);
+                isScheduled = true;
             }
         }
+        pendingList.clear();
+        return isScheduled;
     }
 
     @Override
     public boolean animateRemove(final RecyclerView.ViewHolder holder) {
         resetAnimation(holder);
-        mPendingRemovals.add(holder);
+        mPendingRemovals.add(acquireFadeInfo(holder, false));
         return true;
     }
 
-    private void animateRemoveImpl(final RecyclerView.ViewHolder holder) {
-        final View view = holder.itemView;
-        final ViewPropertyAnimator animation = view.animate();
-        mRemoveAnimations.add(holder);
-        animation.setDuration(getRemoveDuration()).alpha(0).setListener(
-                new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationStart(Animator animator) {
-                        dispatchRemoveStarting(holder);
-                    }
-
-                    @Override
-                    public void onAnimationEnd(Animator animator) {
-                        animation.setListener(null);
-                        view.setAlpha(1);
-                        try {
-                            dispatchRemoveFinished(holder);
-                        } catch (Exception e) {
-                            if (mOnErrorListener != null) {
-                                mOnErrorListener.onError(holder);
-                            }
-                        }
-                        mRemoveAnimations.remove(holder);
-                        dispatchFinishedWhenDone();
-                    }
-                }).start();
-    }
-
     @Override
     public boolean animateAdd(final RecyclerView.ViewHolder holder) {
         resetAnimation(holder);
         holder.itemView.setAlpha(0);
-        mPendingAdditions.add(holder);
+        mPendingAdditions.add(acquireFadeInfo(holder, true));
         return true;
     }
 
-    private void animateAddImpl(final RecyclerView.ViewHolder holder) {
-        final View view = holder.itemView;
-        final ViewPropertyAnimator animation = view.animate();
-        mAddAnimations.add(holder);
-        animation.alpha(1).setDuration(getAddDuration())
-                .setListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationStart(Animator animator) {
-                        dispatchAddStarting(holder);
-                    }
-
-                    @Override
-                    public void onAnimationCancel(Animator animator) {
-                        view.setAlpha(1);
-                    }
-
-                    @Override
-                    public void onAnimationEnd(Animator animator) {
-                        animation.setListener(null);
-                        try {
-                            dispatchAddFinished(holder);
-                        } catch (Exception e) {
-                            if (mOnErrorListener != null) {
-                                mOnErrorListener.onError(holder);
-                            }
-                        }
-                        mAddAnimations.remove(holder);
-                        dispatchFinishedWhenDone();
-                    }
-                }).start();
-    }
-
     @Override
     public boolean animateMove(final RecyclerView.ViewHolder holder, int fromX, int fromY,
                                int toX, int toY) {
         final View view = holder.itemView;
-        fromX += (int) holder.itemView.getTranslationX();
-        fromY += (int) holder.itemView.getTranslationY();
+        fromX += (int) (view.getTranslationX() - getLayoutTranslationX(view));
+        fromY += (int) (view.getTranslationY() - getLayoutTranslationY(view));
         resetAnimation(holder);
         int deltaX = toX - fromX;
         int deltaY = toY - fromY;
@@ -269,59 +266,108 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
             return false;
         }
         if (deltaX != 0) {
-            view.setTranslationX(-deltaX);
+            view.setTranslationX(getLayoutTranslationX(view) - deltaX);
         }
         if (deltaY != 0) {
-            view.setTranslationY(-deltaY);
+            view.setTranslationY(getLayoutTranslationY(view) - deltaY);
         }
-        mPendingMoves.add(new MoveInfo(holder, fromX, fromY, toX, toY));
+        MoveInfo info = acquireMoveInfo();
+        info.set(holder, fromX, fromY, toX, toY);
+        mPendingMoves.add(info);
+        mMoveIndex.put(holder, info);
         return true;
     }
 
-    private void animateMoveImpl(final RecyclerView.ViewHolder holder, int fromX, int fromY, int toX, int toY) {
-        final View view = holder.itemView;
-        final int deltaX = toX - fromX;
-        final int deltaY = toY - fromY;
-        if (deltaX != 0) {
-            view.animate().translationX(0);
-        }
-        if (deltaY != 0) {
-            view.animate().translationY(0);
-        }
-        // vpas are canceled (and can't end them. why?)
-        // need listener functionality in VPACompat for this. Ick.
-        final ViewPropertyAnimator animation = view.animate();
-        mMoveAnimations.add(holder);
-        animation.setDuration(getMoveDuration()).setListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationStart(Animator animator) {
-                dispatchMoveStarting(holder);
-            }
+    @NonNull
+    @Override
+    public ItemHolderInfo obtainHolderInfo() {
+        return new PathHolderInfo();
+    }
 
-            @Override
-            public void onAnimationCancel(Animator animator) {
-                if (deltaX != 0) {
-                    view.setTranslationX(0);
-                }
-                if (deltaY != 0) {
-                    view.setTranslationY(0);
-                }
-            }
+    @NonNull
+    @Override
+    public ItemHolderInfo recordPreLayoutInformation(@NonNull RecyclerView.State state,
+                                                     @NonNull RecyclerView.ViewHolder viewHolder,
+                                                     int changeFlags, @NonNull List<Object> payloads) {
+        return recordPathInfo(super.recordPreLayoutInformation(state, viewHolder, changeFlags, payloads), viewHolder);
+    }
 
-            @Override
-            public void onAnimationEnd(Animator animator) {
-                animation.setListener(null);
-                try {
-                    dispatchMoveFinished(holder);
-                } catch (Exception e) {
-                    if (mOnErrorListener != null) {
-                        mOnErrorListener.onError(holder);
-                    }
-                }
-                mMoveAnimations.remove(holder);
-                dispatchFinishedWhenDone();
-            }
-        }).start();
+    @NonNull
+    @Override
+    public ItemHolderInfo recordPostLayoutInformation(@NonNull RecyclerView.State state,
+                                                      @NonNull RecyclerView.ViewHolder viewHolder) {
+        return recordPathInfo(super.recordPostLayoutInformation(state, viewHolder), viewHolder);
+    }
+
+    /**
+     * 记录Item在Path上的位置，
+     * 通过translation定位时，Item布局的位置都是(0, 0)，要加上布局时设置的translation才是Item实际所在的位置
+     */
+    private ItemHolderInfo recordPathInfo(ItemHolderInfo info, RecyclerView.ViewHolder holder) {
+        int offsetX = (int) getLayoutTranslationX(holder.itemView);
+        int offsetY = (int) getLayoutTranslationY(holder.itemView);
+        info.left += offsetX;
+        info.right += offsetX;
+        info.top += offsetY;
+        info.bottom += offsetY;
+        if (info instanceof PathHolderInfo) {
+            ((PathHolderInfo) info).fraction = mPathProvider == null ? Float.NaN
+                    : mPathProvider.getItemFraction(holder.itemView);
+        }
+        return info;
+    }
+
+    @Override
+    public boolean animateDisappearance(@NonNull RecyclerView.ViewHolder viewHolder,
+                                        @NonNull ItemHolderInfo preLayoutInfo,
+                                        @Nullable ItemHolderInfo postLayoutInfo) {
+        //被删除的Item还是播放渐隐动画
+        boolean isRemoved = ((RecyclerView.LayoutParams) viewHolder.itemView.getLayoutParams()).isItemRemoved();
+        return !isRemoved && animatePathMove(viewHolder, preLayoutInfo, postLayoutInfo)
+                || super.animateDisappearance(viewHolder, preLayoutInfo, postLayoutInfo);
+    }
+
+    @Override
+    public boolean animateAppearance(@NonNull RecyclerView.ViewHolder viewHolder,
+                                     @Nullable ItemHolderInfo preLayoutInfo,
+                                     @NonNull ItemHolderInfo postLayoutInfo) {
+        return animatePathMove(viewHolder, preLayoutInfo, postLayoutInfo)
+                || super.animateAppearance(viewHolder, preLayoutInfo, postLayoutInfo);
+    }
+
+    @Override
+    public boolean animatePersistence(@NonNull RecyclerView.ViewHolder viewHolder,
+                                      @NonNull ItemHolderInfo preInfo, @NonNull ItemHolderInfo postInfo) {
+        return animatePathMove(viewHolder, preInfo, postInfo)
+                || super.animatePersistence(viewHolder, preInfo, postInfo);
+    }
+
+    /**
+     * 沿着Path从之前的位置移动到新的位置，同时改变旋转角度和缩放比例
+     *
+     * @return 没有设置PathProvider、前后有一方不在Path上，或者位置没有改变时返回false (交给默认的动画处理)
+     */
+    private boolean animatePathMove(RecyclerView.ViewHolder holder, ItemHolderInfo preInfo, ItemHolderInfo postInfo) {
+        if (mPathProvider == null || !(preInfo instanceof PathHolderInfo) || !(postInfo instanceof PathHolderInfo)) {
+            return false;
+        }
+        float fromFraction = ((PathHolderInfo) preInfo).fraction;
+        float toFraction = ((PathHolderInfo) postInfo).fraction;
+        //上一次的动画还没播放完，从当前所在的位置继续移动
+        MoveInfo running = mMoveIndex.get(holder);
+        if (running != null && running.isAlongPath) {
+            fromFraction = running.fraction;
+        }
+        if (Float.isNaN(fromFraction) || Float.isNaN(toFraction) || fromFraction == toFraction) {
+            return false;
+        }
+        resetAnimation(holder);
+        applyPathFraction(holder, fromFraction);
+        MoveInfo info = acquireMoveInfo();
+        info.setAlongPath(holder, fromFraction, toFraction);
+        mPendingMoves.add(info);
+        mMoveIndex.put(holder, info);
+        return true;
     }
 
     @Override
@@ -336,8 +382,9 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
         final float prevTranslationY = oldHolder.itemView.getTranslationY();
         final float prevAlpha = oldHolder.itemView.getAlpha();
         resetAnimation(oldHolder);
-        int deltaX = (int) (toX - fromX - prevTranslationX);
-        int deltaY = (int) (toY - fromY - prevTranslationY);
+        //只算动画造成的偏移，不包括布局时设置的translation
+        int deltaX = (int) (toX - fromX - (prevTranslationX - getLayoutTranslationX(oldHolder.itemView)));
+        int deltaY = (int) (toY - fromY - (prevTranslationY - getLayoutTranslationY(oldHolder.itemView)));
         // recover prev translation state after ending animation
         oldHolder.itemView.setTranslationX(prevTranslationX);
         oldHolder.itemView.setTranslationY(prevTranslationY);
@@ -345,86 +392,362 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
         if (newHolder != null) {
             // carry over translation values
             resetAnimation(newHolder);
-            newHolder.itemView.setTranslationX(-deltaX);
-            newHolder.itemView.setTranslationY(-deltaY);
+            newHolder.itemView.setTranslationX(getLayoutTranslationX(newHolder.itemView) - deltaX);
+            newHolder.itemView.setTranslationY(getLayoutTranslationY(newHolder.itemView) - deltaY);
             newHolder.itemView.setAlpha(0);
         }
-        mPendingChanges.add(new ChangeInfo(oldHolder, newHolder, fromX, fromY, toX, toY));
+        ChangeInfo info = acquireChangeInfo();
+        info.set(oldHolder, newHolder, fromX, fromY, toX, toY);
+        mPendingChanges.add(info);
+        mChangeIndex.put(oldHolder, info);
+        if (newHolder != null) {
+            mChangeIndex.put(newHolder, info);
+        }
         return true;
     }
 
-    private void animateChangeImpl(final ChangeInfo changeInfo) {
-        final RecyclerView.ViewHolder holder = changeInfo.oldHolder;
-        final View view = holder == null ? null : holder.itemView;
-        final RecyclerView.ViewHolder newHolder = changeInfo.newHolder;
-        final View newView = newHolder != null ? newHolder.itemView : null;
-        if (view != null) {
-            final ViewPropertyAnimator oldViewAnim = view.animate().setDuration(
-                    getChangeDuration());
-            mChangeAnimations.add(changeInfo.oldHolder);
-            oldViewAnim.translationX(changeInfo.toX - changeInfo.fromX);
-            oldViewAnim.translationY(changeInfo.toY - changeInfo.fromY);
-            oldViewAnim.alpha(0).setListener(new AnimatorListenerAdapter() {
+    private FadeInfo acquireFadeInfo(RecyclerView.ViewHolder holder, boolean isAddition) {
+        FadeInfo info = mFadeInfoPool.acquire();
+        if (info == null) {
+            info = new FadeInfo();
+        }
+        info.holder = holder;
+        info.isAddition = isAddition;
+        mFadeIndex.put(holder, info);
+        return info;
+    }
+
+    private MoveInfo acquireMoveInfo() {
+        MoveInfo info = mMoveInfoPool.acquire();
+        return info == null ? new MoveInfo() : info;
+    }
+
+    private ChangeInfo acquireChangeInfo() {
+        ChangeInfo info = mChangeInfoPool.acquire();
+        return info == null ? new ChangeInfo() : info;
+    }
+
+    private void startTicker() {
+        if (mTicker == null) {
+            mTicker = ValueAnimator.ofFloat(0, 1);
+            mTicker.setRepeatCount(ValueAnimator.INFINITE);
+            mTicker.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
                 @Override
-                public void onAnimationStart(Animator animator) {
-                    dispatchChangeStarting(changeInfo.oldHolder, true);
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    onAnimationFrame();
                 }
-
+            });
+            mTicker.addListener(new AnimatorListenerAdapter() {
                 @Override
-                public void onAnimationEnd(Animator animator) {
-                    oldViewAnim.setListener(null);
-                    view.setAlpha(1);
-                    view.setTranslationX(0);
-                    view.setTranslationY(0);
-                    try {
-                        dispatchChangeFinished(changeInfo.oldHolder, true);
-                    } catch (Exception e) {
-                        if (mOnErrorListener != null) {
-                            mOnErrorListener.onError(changeInfo.oldHolder);
-                        }
-                    }
-                    mChangeAnimations.remove(changeInfo.oldHolder);
-                    dispatchFinishedWhenDone();
+                public void onAnimationEnd(Animator animation) {
+                    onTickerEnd();
                 }
-            }).start();
+            });
+        }
+        if (!mTicker.isStarted()) {
+            mTicker.start();
+        }
+    }
+
+    /**
+     * 更新所有已经开始的动画，播放完的和已经被提前结束的从列表中移除 (原地压缩，不需要逐个remove)
+     */
+    private void onAnimationFrame() {
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        mDurationScale = getDurationScale();
+        int count = 0;
+        for (int i = 0; i < mFadeAnimations.size(); i++) {
+            FadeInfo info = mFadeAnimations.get(i);
+            if (info.holder == null) {
+                recycle(info);
+            } else if (updateFade(info, now)) {
+                mFinishedFades.add(info);
+            } else {
+                mFadeAnimations.set(count++, info);
+            }
+        }
+        trimToSize(mFadeAnimations, count);
+        count = 0;
+        for (int i = 0; i < mMoveAnimations.size(); i++) {
+            MoveInfo info = mMoveAnimations.get(i);
+            if (info.holder == null) {
+                recycle(info);
+            } else if (updateMove(info, now)) {
+                mFinishedMoves.add(info);
+            } else {
+                mMoveAnimations.set(count++, info);
+            }
+        }
+        trimToSize(mMoveAnimations, count);
+        count = 0;
+        for (int i = 0; i < mChangeAnimations.size(); i++) {
+            ChangeInfo info = mChangeAnimations.get(i);
+            if (info.isEnded()) {
+                recycle(info);
+            } else if (updateChange(info, now)) {
+                mFinishedChanges.add(info);
+            } else {
+                mChangeAnimations.set(count++, info);
+            }
+        }
+        trimToSize(mChangeAnimations, count);
+
+        //回调中结束其他Item的动画只会把记录标记为无效，不会修改这些列表
+        for (int i = 0; i < mFinishedFades.size(); i++) {
+            FadeInfo info = mFinishedFades.get(i);
+            endFade(info);
+            recycle(info);
+        }
+        mFinishedFades.clear();
+        for (int i = 0; i < mFinishedMoves.size(); i++) {
+            MoveInfo info = mFinishedMoves.get(i);
+            endMove(info);
+            recycle(info);
+        }
+        mFinishedMoves.clear();
+        for (int i = 0; i < mFinishedChanges.size(); i++) {
+            ChangeInfo info = mFinishedChanges.get(i);
+            endChangeAnimationIfNecessary(info);
+            recycle(info);
+        }
+        mFinishedChanges.clear();
+
+        if (mFadeAnimations.isEmpty() && mMoveAnimations.isEmpty() && mChangeAnimations.isEmpty()) {
+            mTicker.cancel();
+        }
+        dispatchFinishedWhenDone();
+    }
+
+    /**
+     * 动画时长缩放为0时 (API 26以上)，mTicker在第一帧之后就结束了，不会再回调onAnimationFrame，
+     * 这时候要直接结束剩下的动画，否则被删除的Item会一直留在屏幕上，新增的Item一直是透明的
+     * (正常停止时列表已经是空的)
+     */
+    private void onTickerEnd() {
+        if (!mFadeAnimations.isEmpty() || !mMoveAnimations.isEmpty() || !mChangeAnimations.isEmpty()) {
+            endMoves(mMoveAnimations);
+            endFades(mFadeAnimations);
+            endChanges(mChangeAnimations);
+            dispatchFinishedWhenDone();
+        }
+    }
+
+    private long scaleDuration(long duration) {
+        return (long) (duration * mDurationScale);
+    }
+
+    /**
+     * @return 系统设置的动画时长缩放比例 (ViewPropertyAnimator也会按这个比例缩放)
+     */
+    private static float getDurationScale() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return ValueAnimator.getDurationScale();
+        }
+        try {
+            if (sDurationScaleField == null) {
+                sDurationScaleField = ValueAnimator.class.getDeclaredField("sDurationScale");
+                sDurationScaleField.setAccessible(true);
+            }
+            return sDurationScaleField.getFloat(null);
+        } catch (Exception e) {
+            return 1;
+        }
+    }
+
+    private static <T> void trimToSize(ArrayList<T> list, int size) {
+        for (int i = list.size() - 1; i >= size; i--) {
+            list.remove(i);
+        }
+    }
+
+    private static float getProgress(long playTime, long duration) {
+        return playTime >= duration ? 1 : sDefaultInterpolator.getInterpolation(playTime / (float) duration);
+    }
+
+    /**
+     * @return 是否已经播放完
+     */
+    private boolean updateFade(FadeInfo info, long now) {
+        long playTime = now - info.startTime;
+        if (playTime < 0) {
+            return false;
+        }
+        View view = info.holder.itemView;
+        if (!info.isStarted) {
+            info.isStarted = true;
+            info.fromAlpha = view.getAlpha();
+            if (info.isAddition) {
+                dispatchAddStarting(info.holder);
+            } else {
+                dispatchRemoveStarting(info.holder);
+            }
+        }
+        long duration = scaleDuration(info.isAddition ? getAddDuration() : getRemoveDuration());
+        float toAlpha = info.isAddition ? 1 : 0;
+        view.setAlpha(info.fromAlpha + (toAlpha - info.fromAlpha) * getProgress(playTime, duration));
+        return playTime >= duration;
+    }
+
+    /**
+     * @return 是否已经播放完
+     */
+    private boolean updateMove(MoveInfo info, long now) {
+        long playTime = now - info.startTime;
+        if (playTime < 0) {
+            return false;
+        }
+        View view = info.holder.itemView;
+        if (!info.isStarted) {
+            info.isStarted = true;
+            info.fromTranslationX = view.getTranslationX() - getLayoutTranslationX(view);
+            info.fromTranslationY = view.getTranslationY() - getLayoutTranslationY(view);
+            dispatchMoveStarting(info.holder);
+        }
+        long duration = scaleDuration(getMoveDuration());
+        if (playTime >= duration) {
+            return true;
+        }
+        float progress = getProgress(playTime, duration);
+        if (info.isAlongPath) {
+            info.fraction = info.fromFraction + (getTargetFraction(info) - info.fromFraction) * progress;
+            applyPathFraction(info.holder, info.fraction);
+        } else {
+            //布局时设置的translation每一帧都重新获取，动画过程中滚动了也能跟上
+            if (info.toX != info.fromX) {
+                view.setTranslationX(getLayoutTranslationX(view) + info.fromTranslationX * (1 - progress));
+            }
+            if (info.toY != info.fromY) {
+                view.setTranslationY(getLayoutTranslationY(view) + info.fromTranslationY * (1 - progress));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 是否已经播放完
+     */
+    private boolean updateChange(ChangeInfo info, long now) {
+        long playTime = now - info.startTime;
+        if (playTime < 0) {
+            return false;
+        }
+        View oldView = info.oldHolder == null ? null : info.oldHolder.itemView;
+        View newView = info.newHolder == null ? null : info.newHolder.itemView;
+        if (!info.isStarted) {
+            info.isStarted = true;
+            if (oldView != null) {
+                info.oldTranslationX = oldView.getTranslationX() - getLayoutTranslationX(oldView);
+                info.oldTranslationY = oldView.getTranslationY() - getLayoutTranslationY(oldView);
+                info.oldAlpha = oldView.getAlpha();
+                dispatchChangeStarting(info.oldHolder, true);
+            }
+            if (newView != null) {
+                info.newTranslationX = newView.getTranslationX() - getLayoutTranslationX(newView);
+                info.newTranslationY = newView.getTranslationY() - getLayoutTranslationY(newView);
+                info.newAlpha = newView.getAlpha();
+                dispatchChangeStarting(info.newHolder, false);
+            }
+        }
+        long duration = scaleDuration(getChangeDuration());
+        if (playTime >= duration) {
+            return true;
+        }
+        float progress = getProgress(playTime, duration);
+        if (oldView != null) {
+            oldView.setTranslationX(getLayoutTranslationX(oldView) + info.oldTranslationX
+                    + (info.toX - info.fromX - info.oldTranslationX) * progress);
+            oldView.setTranslationY(getLayoutTranslationY(oldView) + info.oldTranslationY
+                    + (info.toY - info.fromY - info.oldTranslationY) * progress);
+            oldView.setAlpha(info.oldAlpha * (1 - progress));
         }
         if (newView != null) {
-            final ViewPropertyAnimator newViewAnimation = newView.animate();
-            mChangeAnimations.add(changeInfo.newHolder);
-            newViewAnimation.translationX(0).translationY(0).setDuration(getChangeDuration())
-                    .alpha(1).setListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationStart(Animator animator) {
-                    dispatchChangeStarting(changeInfo.newHolder, false);
-                }
+            newView.setTranslationX(getLayoutTranslationX(newView) + info.newTranslationX * (1 - progress));
+            newView.setTranslationY(getLayoutTranslationY(newView) + info.newTranslationY * (1 - progress));
+            newView.setAlpha(info.newAlpha + (1 - info.newAlpha) * progress);
+        }
+        return false;
+    }
 
-                @Override
-                public void onAnimationEnd(Animator animator) {
-                    newViewAnimation.setListener(null);
-                    newView.setAlpha(1);
-                    newView.setTranslationX(0);
-                    newView.setTranslationY(0);
-                    try {
-                        dispatchChangeFinished(changeInfo.newHolder, false);
-                    } catch (Exception e) {
-                        if (mOnErrorListener != null) {
-                            mOnErrorListener.onError(changeInfo.newHolder);
-                        }
-                    }
-                    mChangeAnimations.remove(changeInfo.newHolder);
-                    dispatchFinishedWhenDone();
-                }
-            }).start();
+    /**
+     * 动画过程中Item可能因为滚动而重新布局了，这时候要移动到新的位置
+     */
+    private float getTargetFraction(MoveInfo info) {
+        float fraction = mPathProvider == null ? Float.NaN : mPathProvider.getItemFraction(info.holder.itemView);
+        return Float.isNaN(fraction) ? info.toFraction : fraction;
+    }
+
+    private void applyPathFraction(RecyclerView.ViewHolder holder, float fraction) {
+        View view = holder.itemView;
+        if (mPathProvider != null && mPathProvider.getItemTransform(view, fraction, mPathTransform)) {
+            view.setTranslationX(mPathTransform[0]);
+            view.setTranslationY(mPathTransform[1]);
+            view.setRotation(mPathTransform[2]);
+            if (!Float.isNaN(mPathTransform[3])) {
+                view.setScaleX(mPathTransform[3]);
+                view.setScaleY(mPathTransform[3]);
+            }
         }
     }
 
-    private void endChangeAnimation(List<ChangeInfo> infoList, RecyclerView.ViewHolder item) {
-        for (int i = infoList.size() - 1; i >= 0; i--) {
-            ChangeInfo changeInfo = infoList.get(i);
-            if (endChangeAnimationIfNecessary(changeInfo, item)) {
-                if (changeInfo.oldHolder == null && changeInfo.newHolder == null) {
-                    infoList.remove(changeInfo);
-                }
+    /**
+     * @return 布局时设置的translationX (没有通过translation定位时为0)
+     */
+    private float getLayoutTranslationX(View view) {
+        return mLayoutTranslationProvider == null ? 0 : mLayoutTranslationProvider.getLayoutTranslationX(view);
+    }
+
+    private float getLayoutTranslationY(View view) {
+        return mLayoutTranslationProvider == null ? 0 : mLayoutTranslationProvider.getLayoutTranslationY(view);
+    }
+
+    /**
+     * 恢复Item的透明度并回调 (已经结束的不会重复回调)
+     */
+    private void endFade(FadeInfo info) {
+        RecyclerView.ViewHolder holder = info.holder;
+        if (holder == null) {
+            return;
+        }
+        //记录还在列表中，等遍历列表时再回收
+        info.holder = null;
+        mFadeIndex.remove(holder);
+        holder.itemView.setAlpha(1);
+        try {
+            if (info.isAddition) {
+                dispatchAddFinished(holder);
+            } else {
+                dispatchRemoveFinished(holder);
+            }
+        } catch (Exception e) {
+            if (mOnErrorListener != null) {
+                mOnErrorListener.onError(holder);
+            }
+        }
+    }
+
+    /**
+     * 把Item放到最终的位置上 (跟布局时设置的属性一致) 并回调 (已经结束的不会重复回调)
+     */
+    private void endMove(MoveInfo info) {
+        RecyclerView.ViewHolder holder = info.holder;
+        if (holder == null) {
+            return;
+        }
+        View view = holder.itemView;
+        if (info.isAlongPath) {
+            info.fraction = getTargetFraction(info);
+            applyPathFraction(holder, info.fraction);
+        } else {
+            view.setTranslationX(getLayoutTranslationX(view));
+            view.setTranslationY(getLayoutTranslationY(view));
+        }
+        info.holder = null;
+        mMoveIndex.remove(holder);
+        try {
+            dispatchMoveFinished(holder);
+        } catch (Exception e) {
+            if (mOnErrorListener != null) {
+                mOnErrorListener.onError(holder);
             }
         }
     }
@@ -448,9 +771,10 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
         } else {
             return false;
         }
+        mChangeIndex.remove(item);
         item.itemView.setAlpha(1);
-        item.itemView.setTranslationX(0);
-        item.itemView.setTranslationY(0);
+        item.itemView.setTranslationX(getLayoutTranslationX(item.itemView));
+        item.itemView.setTranslationY(getLayoutTranslationY(item.itemView));
         try {
             dispatchChangeFinished(item, oldItem);
         } catch (Exception e) {
@@ -461,117 +785,34 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
         return true;
     }
 
-    @Override
-    public void endAnimation(RecyclerView.ViewHolder item) {
-        final View view = item.itemView;
-        // this will trigger end callback which should set properties to their target values.
-        view.animate().cancel();
-        for (int i = mPendingMoves.size() - 1; i >= 0; i--) {
-            MoveInfo moveInfo = mPendingMoves.get(i);
-            if (moveInfo.holder == item) {
-                view.setTranslationY(0);
-                view.setTranslationX(0);
-                try {
-                    dispatchMoveFinished(item);
-                } catch (Exception e) {
-                    if (mOnErrorListener != null) {
-                        mOnErrorListener.onError(item);
-                    }
-                }
-                mPendingMoves.remove(i);
-            }
-        }
-        endChangeAnimation(mPendingChanges, item);
-        if (mPendingRemovals.remove(item)) {
-            view.setAlpha(1);
-            try {
-                dispatchRemoveFinished(item);
-            } catch (Exception e) {
-                if (mOnErrorListener != null) {
-                    mOnErrorListener.onError(item);
-                }
-            }
-        }
-        if (mPendingAdditions.remove(item)) {
-            view.setAlpha(1);
-            try {
-                dispatchAddFinished(item);
-            } catch (Exception e) {
-                if (mOnErrorListener != null) {
-                    mOnErrorListener.onError(item);
-                }
-            }
-        }
+    private void recycle(FadeInfo info) {
+        info.clear();
+        mFadeInfoPool.release(info);
+    }
 
-        for (int i = mChangesList.size() - 1; i >= 0; i--) {
-            ArrayList<ChangeInfo> changes = mChangesList.get(i);
-            endChangeAnimation(changes, item);
-            if (changes.isEmpty()) {
-                mChangesList.remove(i);
-            }
-        }
-        for (int i = mMovesList.size() - 1; i >= 0; i--) {
-            ArrayList<MoveInfo> moves = mMovesList.get(i);
-            for (int j = moves.size() - 1; j >= 0; j--) {
-                MoveInfo moveInfo = moves.get(j);
-                if (moveInfo.holder == item) {
-                    view.setTranslationY(0);
-                    view.setTranslationX(0);
-                    try {
-                        dispatchMoveFinished(item);
-                    } catch (Exception e) {
-                        if (mOnErrorListener != null) {
-                            mOnErrorListener.onError(item);
-                        }
-                    }
-                    moves.remove(j);
-                    if (moves.isEmpty()) {
-                        mMovesList.remove(i);
-                    }
-                    break;
-                }
-            }
-        }
-        for (int i = mAdditionsList.size() - 1; i >= 0; i--) {
-            ArrayList<RecyclerView.ViewHolder> additions = mAdditionsList.get(i);
-            if (additions.remove(item)) {
-                view.setAlpha(1);
-                try {
-                    dispatchAddFinished(item);
-                } catch (Exception e) {
-                    if (mOnErrorListener != null) {
-                        mOnErrorListener.onError(item);
-                    }
-                }
-                if (additions.isEmpty()) {
-                    mAdditionsList.remove(i);
-                }
-            }
-        }
+    private void recycle(MoveInfo info) {
+        info.clear();
+        mMoveInfoPool.release(info);
+    }
 
-        // animations should be ended by the cancel above.
-        //noinspection PointlessBooleanExpression,ConstantConditions
-        if (mRemoveAnimations.remove(item) && DEBUG) {
-            throw new IllegalStateException("after animation is cancelled, item should not be in "
-                    + "mRemoveAnimations list");
-        }
+    private void recycle(ChangeInfo info) {
+        info.clear();
+        mChangeInfoPool.release(info);
+    }
 
-        //noinspection PointlessBooleanExpression,ConstantConditions
-        if (mAddAnimations.remove(item) && DEBUG) {
-            throw new IllegalStateException("after animation is cancelled, item should not be in "
-                    + "mAddAnimations list");
+    @Override
+    public void endAnimation(RecyclerView.ViewHolder item) {
+        FadeInfo fadeInfo = mFadeIndex.get(item);
+        if (fadeInfo != null) {
+            endFade(fadeInfo);
         }
-
-        //noinspection PointlessBooleanExpression,ConstantConditions
-        if (mChangeAnimations.remove(item) && DEBUG) {
-            throw new IllegalStateException("after animation is cancelled, item should not be in "
-                    + "mChangeAnimations list");
+        MoveInfo moveInfo = mMoveIndex.get(item);
+        if (moveInfo != null) {
+            endMove(moveInfo);
         }
-
-        //noinspection PointlessBooleanExpression,ConstantConditions
-        if (mMoveAnimations.remove(item) && DEBUG) {
-            throw new IllegalStateException("after animation is cancelled, item should not be in "
-                    + "mMoveAnimations list");
+        ChangeInfo changeInfo = mChangeIndex.get(item);
+        if (changeInfo != null) {
+            endChangeAnimationIfNecessary(changeInfo, item);
         }
         dispatchFinishedWhenDone();
     }
@@ -580,23 +821,15 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
         if (sDefaultInterpolator == null) {
             sDefaultInterpolator = new ValueAnimator().getInterpolator();
         }
-        holder.itemView.animate().setInterpolator(sDefaultInterpolator);
         endAnimation(holder);
     }
 
     @Override
     public boolean isRunning() {
-        return (!mPendingAdditions.isEmpty()
-                || !mPendingChanges.isEmpty()
-                || !mPendingMoves.isEmpty()
-                || !mPendingRemovals.isEmpty()
-                || !mMoveAnimations.isEmpty()
-                || !mRemoveAnimations.isEmpty()
-                || !mAddAnimations.isEmpty()
-                || !mChangeAnimations.isEmpty()
-                || !mMovesList.isEmpty()
-                || !mAdditionsList.isEmpty()
-                || !mChangesList.isEmpty());
+        //还没结束的记录都在索引中
+        return (!mFadeIndex.isEmpty()
+                || !mMoveIndex.isEmpty()
+                || !mChangeIndex.isEmpty());
     }
 
     /**
@@ -612,122 +845,67 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
 
     @Override
     public void endAnimations() {
-        int count = mPendingMoves.size();
-        for (int i = count - 1; i >= 0; i--) {
-            MoveInfo item = mPendingMoves.get(i);
-            View view = item.holder.itemView;
-            view.setTranslationY(0);
-            view.setTranslationX(0);
-            try {
-                dispatchMoveFinished(item.holder);
-            } catch (Exception e) {
-                if (mOnErrorListener != null) {
-                    mOnErrorListener.onError(item.holder);
-                }
-            }
-            mPendingMoves.remove(i);
-        }
-        count = mPendingRemovals.size();
-        for (int i = count - 1; i >= 0; i--) {
-            RecyclerView.ViewHolder item = mPendingRemovals.get(i);
-            try {
-                dispatchRemoveFinished(item);
-            } catch (Exception e) {
-                if (mOnErrorListener != null) {
-                    mOnErrorListener.onError(item);
-                }
-            }
-            mPendingRemovals.remove(i);
-        }
-        count = mPendingAdditions.size();
-        for (int i = count - 1; i >= 0; i--) {
-            RecyclerView.ViewHolder item = mPendingAdditions.get(i);
-            item.itemView.setAlpha(1);
-            try {
-                dispatchAddFinished(item);
-            } catch (Exception e) {
-                if (mOnErrorListener != null) {
-                    mOnErrorListener.onError(item);
-                }
-            }
-            mPendingAdditions.remove(i);
-        }
-        count = mPendingChanges.size();
-        for (int i = count - 1; i >= 0; i--) {
-            endChangeAnimationIfNecessary(mPendingChanges.get(i));
-        }
-        mPendingChanges.clear();
+        endMoves(mPendingMoves);
+        endFades(mPendingRemovals);
+        endFades(mPendingAdditions);
+        endChanges(mPendingChanges);
         if (!isRunning()) {
             return;
         }
 
-        int listCount = mMovesList.size();
-        for (int i = listCount - 1; i >= 0; i--) {
-            ArrayList<MoveInfo> moves = mMovesList.get(i);
-            count = moves.size();
-            for (int j = count - 1; j >= 0; j--) {
-                MoveInfo moveInfo = moves.get(j);
-                RecyclerView.ViewHolder item = moveInfo.holder;
-                View view = item.itemView;
-                view.setTranslationY(0);
-                view.setTranslationX(0);
-                try {
-                    dispatchMoveFinished(moveInfo.holder);
-                } catch (Exception e) {
-                    if (mOnErrorListener != null) {
-                        mOnErrorListener.onError(moveInfo.holder);
-                    }
-                }
-                moves.remove(j);
-                if (moves.isEmpty()) {
-                    mMovesList.remove(moves);
-                }
-            }
+        endMoves(mMoveAnimations);
+        endFades(mFadeAnimations);
+        endChanges(mChangeAnimations);
+        if (mTicker != null) {
+            mTicker.cancel();
         }
-        listCount = mAdditionsList.size();
-        for (int i = listCount - 1; i >= 0; i--) {
-            ArrayList<RecyclerView.ViewHolder> additions = mAdditionsList.get(i);
-            count = additions.size();
-            for (int j = count - 1; j >= 0; j--) {
-                RecyclerView.ViewHolder item = additions.get(j);
-                View view = item.itemView;
-                view.setAlpha(1);
-                try {
-                    dispatchAddFinished(item);
-                } catch (Exception e) {
-                    if (mOnErrorListener != null) {
-                        mOnErrorListener.onError(item);
-                    }
-                }
-                additions.remove(j);
-                if (additions.isEmpty()) {
-                    mAdditionsList.remove(additions);
-                }
-            }
+
+        dispatchAnimationsFinished();
+    }
+
+    /**
+     * 结束列表中所有的动画，并回收记录
+     * (回调中可能会添加新的动画，所以每次都要重新获取size)
+     */
+    private void endFades(List<FadeInfo> infoList) {
+        for (int i = 0; i < infoList.size(); i++) {
+            endFade(infoList.get(i));
         }
-        listCount = mChangesList.size();
-        for (int i = listCount - 1; i >= 0; i--) {
-            ArrayList<ChangeInfo> changes = mChangesList.get(i);
-            count = changes.size();
-            for (int j = count - 1; j >= 0; j--) {
-                endChangeAnimationIfNecessary(changes.get(j));
-                if (changes.isEmpty()) {
-                    mChangesList.remove(changes);
-                }
-            }
+        for (int i = 0; i < infoList.size(); i++) {
+            recycle(infoList.get(i));
         }
+        infoList.clear();
+    }
 
-        cancelAll(mRemoveAnimations);
-        cancelAll(mMoveAnimations);
-        cancelAll(mAddAnimations);
-        cancelAll(mChangeAnimations);
+    private void endMoves(List<MoveInfo> infoList) {
+        for (int i = 0; i < infoList.size(); i++) {
+            endMove(infoList.get(i));
+        }
+        for (int i = 0; i < infoList.size(); i++) {
+            recycle(infoList.get(i));
+        }
+        infoList.clear();
+    }
 
-        dispatchAnimationsFinished();
+    private void endChanges(List<ChangeInfo> infoList) {
+        for (int i = 0; i < infoList.size(); i++) {
+            endChangeAnimationIfNecessary(infoList.get(i));
+        }
+        for (int i = 0; i < infoList.size(); i++) {
+            recycle(infoList.get(i));
+        }
+        infoList.clear();
     }
 
-    private void cancelAll(List<RecyclerView.ViewHolder> viewHolders) {
-        for (int i = viewHolders.size() - 1; i >= 0; i--) {
-            viewHolders.get(i).itemView.animate().cancel();
+    /**
+     * 结束所有沿着Path移动的动画 (只标记为无效，不修改列表)
+     */
+    private void endPathMoves(List<MoveInfo> infoList) {
+        for (int i = 0; i < infoList.size(); i++) {
+            MoveInfo info = infoList.get(i);
+            if (info.isAlongPath) {
+                endMove(info);
+            }
         }
     }
 
@@ -753,6 +931,61 @@ public class RepairedItemAnimator extends SimpleItemAnimator {
         return !payloads.isEmpty() || super.canReuseUpdatedViewHolder(viewHolder, payloads);
     }
 
+    /**
+     * 设置PathProvider之后，Item的位移动画会沿着Path播放 (同时改变旋转角度和缩放比例)，
+     * 而不是从起点直线移动到终点
+     *
+     * @param provider 传null则恢复直线位移动画
+     */
+    public void setPathProvider(PathProvider provider) {
+        if (mPathProvider != provider) {
+            //正在播放的动画先停在最终位置
+            endPathMoves(mPendingMoves);
+            endPathMoves(mMoveAnimations);
+            mPathProvider = provider;
+            dispatchFinishedWhenDone();
+        }
+    }
+
+    /**
+     * 提供Item在Path上的位置和对应的变换
+     */
+    public interface PathProvider {
+
+        /**
+         * @return Item最近一次布局时在Path上的位置 (0~1)，不在Path上时返回NaN
+         */
+        float getItemFraction(View item);
+
+        /**
+         * 计算Item移动到Path上的fraction处时需要设置的属性
+         *
+         * @param out [translationX, translationY, rotation, scale] (scale为NaN时不修改)
+         * @return 是否计算成功
+         */
+        boolean getItemTransform(View item, float fraction, float[] out);
+    }
+
+    /**
+     * Item通过translation来定位时 (而不是layout)，需要设置LayoutTranslationProvider，
+     * 位移和change动画结束后Item会回到布局时设置的translation，而不是0 (RecyclerView的左上角)
+     *
+     * @param provider 传null则以0为基准
+     */
+    public void setLayoutTranslationProvider(LayoutTranslationProvider provider) {
+        mLayoutTranslationProvider = provider;
+    }
+
+    /**
+     * 提供布局时给Item设置的translation
+     */
+    public interface LayoutTranslationProvider {
+
+        float getLayoutTranslationX(View item);
+
+        float getLayoutTranslationY(View item);
+    }
+
     private OnErrorListener mOnErrorListener;
 
     public void setOnErrorListener(OnErrorListener listener) {
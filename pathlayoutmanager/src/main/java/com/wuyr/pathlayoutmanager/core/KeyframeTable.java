@@ -0,0 +1,699 @@
+package com.wuyr.pathlayoutmanager.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Path的采样表 (纯Java实现，不依赖android.graphics)
+ * 通过{@link PathSource}采样，查询结果以 {x, y, angle} 的形式写入调用方提供的数组
+ */
+public class KeyframeTable {
+
+    /**
+     * 默认的采样精度 (px)
+     */
+    public static final float PRECISION = .5F;
+    //自适应采样时，两个采样点之间的最大距离
+    private static final float MAX_ADAPTIVE_STEP = 256F;
+    private static final int PACKED_MAX = 0xFFFF;
+    private static final float ANGLE_UNIT = 360F / 0x10000;
+    private int mNumPoints;
+    private float[] mX;
+    private float[] mY;
+    private float[] mAngle;
+    private boolean isAdaptive; //是否自适应采样
+    private float[] mDistance; //自适应采样时，每个采样点距离Path起点的长度 (固定精度采样时为null)
+    private float mLength; //Path总长度
+    private float mPrecision; //固定精度采样时的精度
+    private float[] mContourStarts; //每个轮廓的起点距离Path起点的长度
+    private float mMaxX;
+    private float mMaxY;
+    private int[] mContourOffsets; //每个轮廓第一个采样点的索引
+
+    //压缩存储：x, y, angle 交错存放，坐标是相对于Path边界的16位定点数，角度量化成16位
+    private ShortBuffer mPacked;
+    private float mPackedLeft, mPackedTop; //Path边界的左上角
+    private float mPackedScaleX, mPackedScaleY; //每一个量化单位所对应的px
+
+    //从磁盘缓存映射进来的采样数据 (不占用堆内存)
+    private FloatBuffer mMappedSamples; //x, y, angle 交错存放
+    private FloatBuffer mMappedDistance;
+
+    private static final int FLAG_ADAPTIVE = 1;
+    private static final int FLAG_PACKED = 1 << 1;
+
+    /**
+     * @param source    路径数据
+     * @param precision 采样精度 (px)，配合{@link #getInterpolatedValue(float, float[])}使用时可以适当调大以节省内存
+     */
+    public KeyframeTable(PathSource source, float precision) {
+        if (precision <= 0) {
+            throw new IllegalArgumentException("precision must be > 0 !!!");
+        }
+        mPrecision = precision;
+        initPath(source);
+    }
+
+    /**
+     * 自适应采样：只在切线角度变化快的地方密集采样，直线和平缓的曲线只需很少的采样点
+     *
+     * @param source           路径数据
+     * @param maxPositionError 相邻采样点之间线性插值所允许的最大位置误差 (px)
+     * @param maxAngleError    相邻采样点之间所允许的最大角度变化 (度)
+     */
+    public KeyframeTable(PathSource source, float maxPositionError, float maxAngleError) {
+        if (maxPositionError <= 0 || maxAngleError <= 0) {
+            throw new IllegalArgumentException("maxPositionError and maxAngleError must be > 0 !!!");
+        }
+        initPathAdaptive(source, maxPositionError, maxAngleError);
+    }
+
+    private void initPath(PathSource source) {
+        source.reset();
+        //先测量所有轮廓的长度，算出总采样点数，数组只需分配一次
+        final float[] lengths = measureContours(source);
+        final int contourCount = lengths.length;
+        for (float length : lengths) {
+            mNumPoints += (int) (length / mPrecision) + 1;
+        }
+
+        mX = new float[mNumPoints];
+        mY = new float[mNumPoints];
+        mAngle = new float[mNumPoints];
+        mContourOffsets = new int[contourCount];
+        mContourStarts = new float[contourCount];
+
+        final float[] position = new float[2];
+        final float[] tangent = new float[2];
+        //重新从第一个轮廓开始采样
+        source.reset();
+        int offset = 0;
+        for (int contour = 0; contour < contourCount; contour++) {
+            if (contour > 0) {
+                source.nextContour();
+            }
+            mContourOffsets[contour] = offset;
+            mContourStarts[contour] = mLength;
+            final float pathLength = lengths[contour];
+            final int numPoints = (int) (pathLength / mPrecision) + 1;
+            for (int i = 0; i < numPoints; ++i) {
+                final float distance = numPoints > 1 ? (i * pathLength) / (numPoints - 1) : 0;
+                source.getPosTan(distance, position, tangent);
+                updateMax(position);
+                mX[offset + i] = position[0];
+                mY[offset + i] = position[1];
+                mAngle[offset + i] = getAngle(tangent);
+            }
+            offset += numPoints;
+            mLength += pathLength;
+        }
+    }
+
+    private void initPathAdaptive(PathSource source, float maxPositionError, float maxAngleError) {
+        isAdaptive = true;
+        source.reset();
+        final float[] lengths = measureContours(source);
+        final int contourCount = lengths.length;
+        //采样点个数事先不知道，先按每个轮廓至少两个点来估算
+        int capacity = contourCount * 2 + 16;
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mAngle = new float[capacity];
+        mDistance = new float[capacity];
+        mContourOffsets = new int[contourCount];
+        mContourStarts = new float[contourCount];
+
+        final float[] position = new float[2];
+        final float[] tangent = new float[2];
+        final float[] probe = new float[2];
+        source.reset();
+        float contourStart = 0;
+        for (int contour = 0; contour < contourCount; contour++) {
+            if (contour > 0) {
+                source.nextContour();
+            }
+            mContourOffsets[contour] = mNumPoints;
+            mContourStarts[contour] = contourStart;
+            final float pathLength = lengths[contour];
+            source.getPosTan(0, position, tangent);
+            addSample(position[0], position[1], getAngle(tangent), contourStart);
+
+            float distance = 0;
+            float step = MAX_ADAPTIVE_STEP;
+            while (distance < pathLength) {
+                step = Math.min(step, pathLength - distance);
+                final int last = mNumPoints - 1;
+                final float startX = mX[last], startY = mY[last], startAngle = mAngle[last];
+                float endDistance, endAngle;
+                //不满足误差要求就把步长减半，直到满足或者到达最小精度
+                while (true) {
+                    endDistance = distance + step;
+                    source.getPosTan(endDistance, position, tangent);
+                    endAngle = getAngle(tangent);
+                    if (step <= PRECISION || isWithinTolerance(source, distance, step, startX, startY,
+                            startAngle, position, endAngle, probe, tangent, maxPositionError, maxAngleError)) {
+                        break;
+                    }
+                    step /= 2;
+                }
+                addSample(position[0], position[1], endAngle, contourStart + endDistance);
+                distance = endDistance;
+                //平滑的地方步长逐渐放大
+                step = Math.min(step * 2, MAX_ADAPTIVE_STEP);
+            }
+            contourStart += pathLength;
+        }
+        mLength = contourStart;
+        mX = Arrays.copyOf(mX, mNumPoints);
+        mY = Arrays.copyOf(mY, mNumPoints);
+        mAngle = Arrays.copyOf(mAngle, mNumPoints);
+        mDistance = Arrays.copyOf(mDistance, mNumPoints);
+    }
+
+    /**
+     * 检查 [start, start + step] 这一段用线性插值代替时的误差
+     * (检查1/4，1/2，3/4三个点的位置和两端的角度差)
+     */
+    private boolean isWithinTolerance(PathSource source, float start, float step,
+                                      float startX, float startY, float startAngle, float[] end, float endAngle,
+                                      float[] probe, float[] tangent, float maxPositionError, float maxAngleError) {
+        if (Math.abs(getAngleDelta(startAngle, endAngle)) > maxAngleError) {
+            return false;
+        }
+        final float endX = end[0], endY = end[1];
+        for (int i = 1; i < 4; i++) {
+            final float t = i / 4F;
+            source.getPosTan(start + step * t, probe, tangent);
+            final float dx = probe[0] - (startX + (endX - startX) * t);
+            final float dy = probe[1] - (startY + (endY - startY) * t);
+            if (dx * dx + dy * dy > maxPositionError * maxPositionError) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addSample(float x, float y, float angle, float distance) {
+        if (mNumPoints == mX.length) {
+            int capacity = mNumPoints * 2;
+            mX = Arrays.copyOf(mX, capacity);
+            mY = Arrays.copyOf(mY, capacity);
+            mAngle = Arrays.copyOf(mAngle, capacity);
+            mDistance = Arrays.copyOf(mDistance, capacity);
+        }
+        if (x > mMaxX) {
+            mMaxX = x;
+        }
+        if (y > mMaxY) {
+            mMaxY = y;
+        }
+        mX[mNumPoints] = x;
+        mY[mNumPoints] = y;
+        mAngle[mNumPoints] = angle;
+        mDistance[mNumPoints] = distance;
+        mNumPoints++;
+    }
+
+    /**
+     * 测量所有轮廓的长度
+     */
+    private float[] measureContours(PathSource source) {
+        float[] lengths = new float[4];
+        int contourCount = 0;
+        do {
+            if (contourCount == lengths.length) {
+                lengths = Arrays.copyOf(lengths, contourCount * 2);
+            }
+            lengths[contourCount++] = source.getLength();
+        } while (source.nextContour());
+        return Arrays.copyOf(lengths, contourCount);
+    }
+
+    private void updateMax(float[] position) {
+        if (position[0] > mMaxX) {
+            mMaxX = position[0];
+        }
+        if (position[1] > mMaxY) {
+            mMaxY = position[1];
+        }
+    }
+
+    private float getAngle(float[] tangent) {
+        return fixAngle((float) (Math.atan2(tangent[1], tangent[0]) * 180F / Math.PI));
+    }
+
+    /**
+     * @return 从from转到to的最小角度 (-180 ~ 180)
+     */
+    private static float getAngleDelta(float from, float to) {
+        float delta = to - from;
+        if (delta > 180F) {
+            delta -= 360F;
+        } else if (delta < -180F) {
+            delta += 360F;
+        }
+        return delta;
+    }
+
+    /**
+     * 调整角度，使其在0 ~ 360之间
+     *
+     * @param rotation 当前角度
+     * @return 调整后的角度
+     */
+    private static float fixAngle(float rotation) {
+        float angle = 360F;
+        if (rotation < 0) {
+            rotation += angle;
+        }
+        if (rotation > angle) {
+            rotation %= angle;
+        }
+        return rotation;
+    }
+
+    public int getMaxX() {
+        return (int) mMaxX;
+    }
+
+    public int getMaxY() {
+        return (int) mMaxY;
+    }
+
+    /**
+     * 获取离fraction最近的采样点 (不插值)
+     *
+     * @param fraction 在Path上的位置 (0~1)
+     * @param out      结果 {x, y, angle}
+     * @return fraction不合法时返回false
+     */
+    public boolean getValue(float fraction, float[] out) {
+        if (fraction >= 1F || fraction < 0) {
+            return false;
+        } else if (isAdaptive) {
+            //自适应采样的点不是均匀分布的，只能插值
+            return getInterpolatedValue(fraction, out);
+        } else {
+            getValue((int) (mNumPoints * fraction), out);
+            return true;
+        }
+    }
+
+    /**
+     * 按长度找到前后两个采样点，并对位置和角度进行插值
+     * (跟{@link #getValue(float, float[])}相比，采样精度较低时也不会出现跳动)
+     *
+     * @param fraction 在Path上的位置 (0~1)
+     * @param out      插值后的坐标和角度 {x, y, angle}
+     * @return fraction不合法时返回false
+     */
+    public boolean getInterpolatedValue(float fraction, float[] out) {
+        if (fraction >= 1F || fraction < 0) {
+            return false;
+        }
+        float distance = mLength * fraction;
+        int index, next;
+        float t;
+        if (isAdaptive) {
+            index = findSampleIndex(distance);
+            next = index + 1;
+            t = next < mNumPoints ? (distance - getSampleDistance(index))
+                    / (getSampleDistance(next) - getSampleDistance(index)) : 0;
+        } else {
+            //固定精度采样时，同一个轮廓内的采样点是均匀分布的，找到轮廓就能直接算出索引
+            int contour = findContourByDistance(distance);
+            int start = mContourOffsets[contour];
+            int end = contour + 1 < mContourOffsets.length ? mContourOffsets[contour + 1] : mNumPoints;
+            float contourLength = (contour + 1 < mContourStarts.length ? mContourStarts[contour + 1] : mLength)
+                    - mContourStarts[contour];
+            float position = contourLength > 0 ? (distance - mContourStarts[contour]) / contourLength * (end - 1 - start) : 0;
+            index = start + (int) position;
+            next = index + 1;
+            t = position - (int) position;
+            //不能跟下一个轮廓的点插值
+            if (next >= end) {
+                index = end - 1;
+                next = end;
+                t = 0;
+            }
+        }
+        if (t <= 0 || next >= mNumPoints) {
+            getValue(index, out);
+        } else {
+            float x = getX(index), y = getY(index), angle = getAngle(index);
+            out[0] = x + (getX(next) - x) * t;
+            out[1] = y + (getY(next) - y) * t;
+            out[2] = fixAngle(angle + getAngleDelta(angle, getAngle(next)) * t);
+        }
+        return true;
+    }
+
+    /**
+     * @param index 采样点索引
+     * @param out   {x, y, angle}
+     */
+    public void getValue(int index, float[] out) {
+        out[0] = getX(index);
+        out[1] = getY(index);
+        out[2] = getAngle(index);
+    }
+
+    /**
+     * @return 采样点个数
+     */
+    public int getNumPoints() {
+        return mNumPoints;
+    }
+
+    private float getX(int index) {
+        if (mX != null) {
+            return mX[index];
+        }
+        return mPacked != null ? mPackedLeft + (mPacked.get(index * 3) & 0xFFFF) * mPackedScaleX
+                : mMappedSamples.get(index * 3);
+    }
+
+    private float getY(int index) {
+        if (mY != null) {
+            return mY[index];
+        }
+        return mPacked != null ? mPackedTop + (mPacked.get(index * 3 + 1) & 0xFFFF) * mPackedScaleY
+                : mMappedSamples.get(index * 3 + 1);
+    }
+
+    private float getAngle(int index) {
+        if (mAngle != null) {
+            return mAngle[index];
+        }
+        return mPacked != null ? (mPacked.get(index * 3 + 2) & 0xFFFF) * ANGLE_UNIT
+                : mMappedSamples.get(index * 3 + 2);
+    }
+
+    private float getSampleDistance(int index) {
+        return mDistance != null ? mDistance[index] : mMappedDistance.get(index);
+    }
+
+    /**
+     * 把采样点压缩成一个交错存放的short数组 (每个点6字节，原来是12字节)，
+     * 坐标精度为 Path边界尺寸 / 65535，角度精度约为0.0055度
+     * (需在关键帧被使用之前调用)
+     */
+    public void pack() {
+        //已经压缩过，或者是从磁盘缓存映射进来的
+        if (mX == null) {
+            return;
+        }
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE;
+        for (int i = 0; i < mNumPoints; i++) {
+            left = Math.min(left, mX[i]);
+            top = Math.min(top, mY[i]);
+        }
+        mPackedLeft = left;
+        mPackedTop = top;
+        mPackedScaleX = Math.max(mMaxX - left, 0) / PACKED_MAX;
+        mPackedScaleY = Math.max(mMaxY - top, 0) / PACKED_MAX;
+        short[] packed = new short[mNumPoints * 3];
+        for (int i = 0; i < mNumPoints; i++) {
+            packed[i * 3] = quantize(mX[i] - left, mPackedScaleX);
+            packed[i * 3 + 1] = quantize(mY[i] - top, mPackedScaleY);
+            packed[i * 3 + 2] = (short) Math.round(mAngle[i] / ANGLE_UNIT);
+        }
+        mPacked = ShortBuffer.wrap(packed);
+        mX = null;
+        mY = null;
+        mAngle = null;
+    }
+
+    private static short quantize(float value, float scale) {
+        return scale > 0 ? (short) Math.min(PACKED_MAX, Math.round(value / scale)) : 0;
+    }
+
+    /**
+     * @return 是否已压缩存储
+     */
+    public boolean isPacked() {
+        return mPacked != null;
+    }
+
+    /**
+     * @return 采样数据大约占用的堆内存 (字节)
+     */
+    public int getByteSize() {
+        int size = 0;
+        if (mX != null) {
+            size += mNumPoints * 12;
+        } else if (mPacked != null && !mPacked.isDirect()) {
+            size += mPacked.capacity() * 2;
+        }
+        if (mDistance != null) {
+            size += mDistance.length * 4;
+        }
+        return size + mContourOffsets.length * 8;
+    }
+
+    /**
+     * @return 采样数据是否是从磁盘缓存映射进来的
+     */
+    public boolean isMapped() {
+        return mMappedSamples != null || (mPacked != null && mPacked.isDirect());
+    }
+
+    /**
+     * @return 序列化后的字节数
+     */
+    public int getSerializedSize() {
+        int size = 12 + 32 + mContourOffsets.length * 8;
+        if (mPacked != null) {
+            //short数组后面补齐到4字节
+            size += (mNumPoints * 6 + 3) & ~3;
+        } else {
+            size += mNumPoints * 12;
+        }
+        if (isAdaptive) {
+            size += mNumPoints * 4;
+        }
+        return size;
+    }
+
+    /**
+     * 把关键帧写入buffer，格式见{@link #readFrom(ByteBuffer)}
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt((isAdaptive ? FLAG_ADAPTIVE : 0) | (mPacked != null ? FLAG_PACKED : 0));
+        buffer.putInt(mNumPoints);
+        buffer.putInt(mContourOffsets.length);
+        buffer.putFloat(mLength).putFloat(mPrecision).putFloat(mMaxX).putFloat(mMaxY);
+        buffer.putFloat(mPackedLeft).putFloat(mPackedTop).putFloat(mPackedScaleX).putFloat(mPackedScaleY);
+        for (int offset : mContourOffsets) {
+            buffer.putInt(offset);
+        }
+        for (float start : mContourStarts) {
+            buffer.putFloat(start);
+        }
+        if (mPacked != null) {
+            for (int i = 0; i < mNumPoints * 3; i++) {
+                buffer.putShort(mPacked.get(i));
+            }
+            while ((buffer.position() & 3) != 0) {
+                buffer.put((byte) 0);
+            }
+        } else {
+            for (int i = 0; i < mNumPoints; i++) {
+                buffer.putFloat(getX(i)).putFloat(getY(i)).putFloat(getAngle(i));
+            }
+        }
+        if (isAdaptive) {
+            for (int i = 0; i < mNumPoints; i++) {
+                buffer.putFloat(getSampleDistance(i));
+            }
+        }
+    }
+
+    private KeyframeTable() {
+    }
+
+    /**
+     * 直接使用buffer (例如通过FileChannel.map映射的文件) 中的采样数据，不会复制到堆内存
+     * 格式:
+     * int flags, int numPoints, int contourCount,
+     * float length, float precision, float maxX, float maxY,
+     * float packedLeft, float packedTop, float packedScaleX, float packedScaleY,
+     * int[contourCount] contourOffsets, float[contourCount] contourStarts,
+     * 压缩存储时为 short[numPoints * 3] (补齐到4字节)，否则为 float[numPoints * 3] (x, y, angle 交错存放)，
+     * 自适应采样时最后是 float[numPoints] distance
+     *
+     * @param buffer 从当前position开始读取，字节序需与写入时一致
+     * @return 数据不合法时返回null
+     */
+    public static KeyframeTable readFrom(ByteBuffer buffer) {
+        if (buffer.remaining() < 44) {
+            return null;
+        }
+        int flags = buffer.getInt();
+        int numPoints = buffer.getInt();
+        int contourCount = buffer.getInt();
+        if (numPoints <= 0 || contourCount <= 0 || contourCount > numPoints) {
+            return null;
+        }
+        KeyframeTable keyframes = new KeyframeTable();
+        keyframes.isAdaptive = (flags & FLAG_ADAPTIVE) != 0;
+        boolean isPacked = (flags & FLAG_PACKED) != 0;
+        keyframes.mNumPoints = numPoints;
+        keyframes.mLength = buffer.getFloat();
+        keyframes.mPrecision = buffer.getFloat();
+        keyframes.mMaxX = buffer.getFloat();
+        keyframes.mMaxY = buffer.getFloat();
+        keyframes.mPackedLeft = buffer.getFloat();
+        keyframes.mPackedTop = buffer.getFloat();
+        keyframes.mPackedScaleX = buffer.getFloat();
+        keyframes.mPackedScaleY = buffer.getFloat();
+
+        long sampleSize = isPacked ? ((numPoints * 6L + 3) & ~3) : numPoints * 12L;
+        long expected = contourCount * 8L + sampleSize + (keyframes.isAdaptive ? numPoints * 4L : 0);
+        if (buffer.remaining() != expected) {
+            return null;
+        }
+        keyframes.mContourOffsets = new int[contourCount];
+        keyframes.mContourStarts = new float[contourCount];
+        for (int i = 0; i < contourCount; i++) {
+            int offset = buffer.getInt();
+            //轮廓的起点必须从0开始递增
+            if (offset < 0 || offset >= numPoints || (i == 0 ? offset != 0 : offset <= keyframes.mContourOffsets[i - 1])) {
+                return null;
+            }
+            keyframes.mContourOffsets[i] = offset;
+        }
+        for (int i = 0; i < contourCount; i++) {
+            keyframes.mContourStarts[i] = buffer.getFloat();
+        }
+        if (isPacked) {
+            keyframes.mPacked = slice(buffer, numPoints * 6).asShortBuffer();
+            buffer.position(buffer.position() + (int) sampleSize);
+        } else {
+            keyframes.mMappedSamples = slice(buffer, numPoints * 12).asFloatBuffer();
+            buffer.position(buffer.position() + numPoints * 12);
+        }
+        if (keyframes.isAdaptive) {
+            keyframes.mMappedDistance = slice(buffer, numPoints * 4).asFloatBuffer();
+            buffer.position(buffer.position() + numPoints * 4);
+        }
+        return keyframes;
+    }
+
+    /**
+     * 从当前position开始截取length个字节 (保留字节序)
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteOrder order = buffer.order();
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        return slice.order(order);
+    }
+
+    /**
+     * 找出distance所在的轮廓 (二分查找)
+     */
+    private int findContourByDistance(float distance) {
+        int low = 0;
+        int high = mContourStarts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mContourStarts[mid] <= distance) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 找出最后一个距离起点不超过distance的采样点 (二分查找)
+     */
+    private int findSampleIndex(float distance) {
+        int low = 0;
+        int high = mNumPoints - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (getSampleDistance(mid) <= distance) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 根据在整条Path上的位置找到对应的采样点索引
+     */
+    private int getSampleIndex(float fraction) {
+        return isAdaptive ? findSampleIndex(mLength * fraction) : (int) (mNumPoints * fraction);
+    }
+
+    /**
+     * @return Path中轮廓 (子路径) 的个数
+     */
+    public int getContourCount() {
+        return mContourOffsets.length;
+    }
+
+    /**
+     * 根据在整条Path上的位置找出所在的轮廓 (二分查找)
+     *
+     * @param fraction 在整条Path上的位置 (0~1)
+     * @return 轮廓的索引，fraction不合法时返回-1
+     */
+    public int getContourIndex(float fraction) {
+        if (fraction >= 1F || fraction < 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(mContourOffsets, getSampleIndex(fraction));
+        //没有刚好命中轮廓起点时，返回的是(-(插入点) - 1)，所在轮廓就是插入点的前一个
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 把在整条Path上的位置转换成在所在轮廓上的位置
+     *
+     * @param fraction 在整条Path上的位置 (0~1)
+     * @return 在所在轮廓上的位置 (0~1)，fraction不合法时返回-1
+     */
+    public float getContourFraction(float fraction) {
+        int contour = getContourIndex(fraction);
+        if (contour < 0) {
+            return -1;
+        }
+        int start = mContourOffsets[contour];
+        int end = contour + 1 < mContourOffsets.length ? mContourOffsets[contour + 1] : mNumPoints;
+        //只有一个采样点的轮廓 (长度为0)
+        if (end - start <= 1) {
+            return 0;
+        }
+        if (isAdaptive) {
+            return Math.min(1F, (mLength * fraction - getSampleDistance(start))
+                    / (getSampleDistance(end - 1) - getSampleDistance(start)));
+        }
+        return Math.min(1F, (mNumPoints * fraction - start) / (end - 1 - start));
+    }
+
+    public int getPathLength() {
+        //不能用 mNumPoints * mPrecision：每个轮廓都多一个采样点，精度越粗偏差越大
+        return (int) mLength;
+    }
+
+    public void release() {
+        mX = null;
+        mY = null;
+        mAngle = null;
+        mPacked = null;
+        mMappedSamples = null;
+        mMappedDistance = null;
+        mDistance = null;
+        mContourOffsets = null;
+        mContourStarts = null;
+    }
+}
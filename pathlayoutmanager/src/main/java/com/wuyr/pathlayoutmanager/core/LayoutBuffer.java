@@ -0,0 +1,107 @@
+package com.wuyr.pathlayoutmanager.core;
+
+import java.util.Arrays;
+
+/**
+ * 需要布局的Item (按字段分开存放的数组，重复使用)
+ * 滚动时每一帧都会重新填充，只有可见Item个数变多时才会扩容，平时不会创建任何对象
+ */
+public class LayoutBuffer {
+
+    private int mSize;
+    private int[] mIndex; //Item所对应的索引
+    private float[] mX;
+    private float[] mY;
+    private float[] mAngle; //Item的旋转角度
+    private float[] mFraction; //在路径上的位置 (百分比)
+    final float[] mValue = new float[3]; //查询关键帧用的临时数组
+
+    public LayoutBuffer() {
+        this(16);
+    }
+
+    public LayoutBuffer(int capacity) {
+        mIndex = new int[capacity];
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mAngle = new float[capacity];
+        mFraction = new float[capacity];
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * 确保至少能存放capacity个Item
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > mIndex.length) {
+            mIndex = Arrays.copyOf(mIndex, capacity);
+            mX = Arrays.copyOf(mX, capacity);
+            mY = Arrays.copyOf(mY, capacity);
+            mAngle = Arrays.copyOf(mAngle, capacity);
+            mFraction = Arrays.copyOf(mFraction, capacity);
+        }
+    }
+
+    public void add(int index, float x, float y, float angle, float fraction) {
+        if (mSize == mIndex.length) {
+            ensureCapacity(mSize * 2 + 1);
+        }
+        mIndex[mSize] = index;
+        mX[mSize] = x;
+        mY[mSize] = y;
+        mAngle[mSize] = angle;
+        mFraction[mSize] = fraction;
+        mSize++;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public int getIndex(int i) {
+        return mIndex[i];
+    }
+
+    public float getX(int i) {
+        return mX[i];
+    }
+
+    public float getY(int i) {
+        return mY[i];
+    }
+
+    public float getAngle(int i) {
+        return mAngle[i];
+    }
+
+    /**
+     * @return Item的旋转角度 (与PosTan#getChildAngle一致)
+     */
+    public float getChildAngle(int i) {
+        return mAngle[i] - 90F;
+    }
+
+    public float getFraction(int i) {
+        return mFraction[i];
+    }
+
+    /**
+     * @param index Item所对应的索引
+     * @return 在buffer中的位置，不存在则返回-1
+     */
+    public int indexOf(int index) {
+        for (int i = 0; i < mSize; i++) {
+            if (mIndex[i] == index) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,597 @@
+package com.wuyr.pathlayoutmanager.core;
+
+/**
+ * PathLayoutManager的布局计算 (纯Java实现，不依赖Android)
+ * 包括偏移量的修正、溢出Item个数、需要布局的Item范围以及缩放比例的计算
+ */
+public class PathLayoutCore {
+
+    /**
+     * 普通模式
+     */
+    public static final int SCROLL_MODE_NORMAL = 0;
+
+    /**
+     * 溢出模式
+     */
+    public static final int SCROLL_MODE_OVERFLOW = 1;
+
+    /**
+     * 无限循环模式
+     */
+    public static final int SCROLL_MODE_LOOP = 2;
+
+    private int mScrollMode; //滚动模式
+    private int mItemOffset; //Item间距
+    private int mPathLength; //Path长度
+    private int mItemCountInScreen; //屏幕中最多能同时显示的Item个数
+    private int mFirstVisibleItemPos; //第一个可见的Item索引
+
+    /**
+     * @param itemOffset Item间距
+     */
+    public PathLayoutCore(int itemOffset) {
+        mItemOffset = itemOffset;
+    }
+
+    /**
+     * 更新Path长度 (关键帧改变后调用)
+     */
+    public void setPathLength(int pathLength) {
+        if (mItemOffset <= 0) {
+            throw new IllegalStateException("itemOffset must be > 0 !!!");
+        }
+        mPathLength = pathLength;
+        updateItemCountInScreen();
+    }
+
+    public int getPathLength() {
+        return mPathLength;
+    }
+
+    public void setItemOffset(int itemOffset) {
+        mItemOffset = itemOffset;
+        updateItemCountInScreen();
+    }
+
+    public int getItemOffset() {
+        return mItemOffset;
+    }
+
+    private void updateItemCountInScreen() {
+        //这里 +1 是为了多显示一个item
+        // 调整前：       ___0___1___2___3___4___5
+
+        // 调整后(不+1):  0___1___2___3___4___5___
+
+        // 调整后(+1):    0___1___2___3___4___5___6
+        mItemCountInScreen = mPathLength / mItemOffset + 1;
+    }
+
+    public int getItemCountInScreen() {
+        return mItemCountInScreen;
+    }
+
+    /**
+     * @param mode {@link #SCROLL_MODE_NORMAL}
+     *             {@link #SCROLL_MODE_OVERFLOW}
+     *             {@link #SCROLL_MODE_LOOP}
+     */
+    public void setScrollMode(int mode) {
+        mScrollMode = mode;
+    }
+
+    public int getScrollMode() {
+        return mScrollMode;
+    }
+
+    /**
+     * @return 最近一次{@link #computeLayoutRange(float, int, int)}得出的第一个可见的Item索引
+     * (无限循环模式下可能为负数或者超出Item总数，需经{@link #getAdapterPosition(int, int)}转换)
+     */
+    public int getFirstVisibleItemPos() {
+        return mFirstVisibleItemPos;
+    }
+
+    /**
+     * @return Item总长度
+     */
+    public int getItemLength(int itemCount) {
+        //这里 +1 是为了让最后一个item 显示出来 (让最后一个item的距离相对于Path长度的百分比<1，
+        // 即使其满足mKeyframes.getValue()方法里面获取有效坐标点的条件)
+        return itemCount * mItemOffset - mItemOffset + 1;
+    }
+
+    /**
+     * 判断是否满足无限循环滚动条件
+     * 条件： 必须明确设置滚动模式为 无限循环模式，并且Item的总长度要大于Path的总长度
+     */
+    public boolean isSatisfiedLoopScroll(int itemCount) {
+        return mScrollMode == SCROLL_MODE_LOOP && getItemLength(itemCount) - mPathLength > mItemOffset;
+    }
+
+    /**
+     * 根据滚动模式修正偏移量
+     *
+     * @param offset    当前偏移量
+     * @param delta     本次滚动的距离
+     * @param itemCount Item总数
+     * @return 新的偏移量
+     */
+    public float updateOffset(float offset, float delta, int itemCount) {
+        offset += delta;
+        int pathLength = mPathLength;
+        int itemLength = getItemLength(itemCount);
+        if (isSatisfiedLoopScroll(itemCount)) {
+            if (offset > itemLength) {
+                offset %= itemLength;
+                //因为是向前偏移了一个Item的距离
+                offset -= mItemOffset;
+            } else if (offset <= -pathLength) {
+                offset += itemLength;
+                offset += mItemOffset;
+            }
+        } else {
+            if (mScrollMode == SCROLL_MODE_OVERFLOW) {
+                if (offset < -pathLength) {
+                    offset = -pathLength;
+                } else if (offset > itemLength) {
+                    offset = itemLength;
+                }
+            } else {
+                int overflowLength = itemLength - pathLength;
+                if (offset < 0) {
+                    offset = 0;
+                } else if (offset > overflowLength) {
+                    if (itemLength > pathLength) {
+                        offset = overflowLength;
+                    } else {
+                        offset -= delta;
+                    }
+                }
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * 获取溢出的Item个数
+     */
+    public int getOverflowCount(float scrollOffset, int itemCount) {
+        //item总长度
+        int itemLength = getItemLength(itemCount);
+
+        //path的长度
+        int pathLength = mPathLength;
+
+        //第一个item较Path终点的偏移量，这个偏移量是以Path的终点为起点的，例如 现在一共有10个item：
+        //                     0___1___2___3___4___5 现在的偏移量是>0的，直到：
+        //                     5___6___7___8___9___0 时为0，这个时候继续向右边滚动的话，就会变成负数了
+        int firstItemScrollOffset = (int) (scrollOffset + pathLength);
+
+        //同上，区别就是上面的是第一个item，这个是最后一个item，例如 现在一共有10个item：
+        //                     0___1___2___3___4___5 现在的偏移量是<0的，一直到：
+        //                     4___5___6___7___8___9 时为0
+        //这样做就是为了：当最后一个item离开它应在的位置时 (常规的滑动模式最后一个item是坐死在最后的位置的)，
+        //能够及时知道，并开始计算出它下一个item索引来补上它的空位
+        int lastItemScrollOffset = firstItemScrollOffset - itemLength;
+        //item的总长度 + path的总长度
+        int lengthOffset = itemLength + pathLength;
+
+        //当最后一个item滑出屏幕时(根据上面的例子来讲，是向左边滑)：
+        //                     9_|_0___1___2___3___4
+        // 开始计算的偏移量（正数），因为如果超出了屏幕而不作处理的话，
+        // 下面计算空缺距离的时候，最大值只能是itemLength
+        int lastItemOverflowOffset = firstItemScrollOffset > lengthOffset ?
+                firstItemScrollOffset - lengthOffset : 0;
+
+        //空缺的距离
+        int vacantDistance = lastItemScrollOffset % itemLength + lastItemOverflowOffset;
+
+        //空缺的距离 / item之间的距离 = 需补上的item个数
+        return vacantDistance / mItemOffset;
+    }
+
+    /**
+     * 计算需要布局的Item范围 [getFirstVisibleItemPos(), 返回值)
+     *
+     * @param scrollOffset   当前偏移量
+     * @param itemCount      Item总数
+     * @param totalItemCount 普通模式下用来限制范围的Item总数 (布局时为State中的Item总数)
+     * @return 最后一个需要布局的Item索引 + 1
+     */
+    public int computeLayoutRange(float scrollOffset, int itemCount, int totalItemCount) {
+        if (isSatisfiedLoopScroll(itemCount)) {
+            int overflowCount = getOverflowCount(scrollOffset, itemCount);
+            //得出第一个可见的item
+            mFirstVisibleItemPos = overflowCount - mItemCountInScreen - 1;
+            return overflowCount;
+        }
+        mFirstVisibleItemPos = findFirstVisibleItem(scrollOffset, itemCount);
+        int endIndex = mFirstVisibleItemPos + mItemCountInScreen;
+        if (endIndex > totalItemCount) {
+            endIndex = totalItemCount;
+        }
+        return endIndex;
+    }
+
+    /**
+     * 找出第一个距离Path起点 >= 0 的Item (非无限循环模式)
+     * Item是等距排列的，所以直接用 偏移量 / Item间距 算出来，再按原来的判断条件修正浮点误差
+     *
+     * @return 所有Item都已经滚过了Path起点时返回itemCount (此时没有可见的Item)
+     */
+    int findFirstVisibleItem(float scrollOffset, int itemCount) {
+        if (scrollOffset <= 0) {
+            return 0;
+        }
+        int index = (int) Math.min(Math.ceil(scrollOffset / (double) mItemOffset), itemCount);
+        while (index > 0 && (index - 1) * mItemOffset - scrollOffset >= 0) {
+            index--;
+        }
+        while (index < itemCount && index * mItemOffset - scrollOffset < 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 计算需要布局的Item的位置、角度，结果写入out (之前的内容会被清空)
+     *
+     * @param table                 关键帧
+     * @param isInterpolationEnable 是否在相邻的采样点之间插值
+     * @param scrollOffset          当前偏移量
+     * @param itemCount             Item总数
+     * @param totalItemCount        普通模式下用来限制范围的Item总数
+     * @param out                   结果
+     */
+    public void computeLayoutItems(KeyframeTable table, boolean isInterpolationEnable, float scrollOffset,
+                                   int itemCount, int totalItemCount, LayoutBuffer out) {
+        out.clear();
+        int endIndex = computeLayoutRange(scrollOffset, itemCount, totalItemCount);
+        out.ensureCapacity(endIndex - mFirstVisibleItemPos);
+        float[] value = out.mValue;
+        float fraction;
+        boolean isValid;
+        for (int i = mFirstVisibleItemPos; i < endIndex; i++) {
+            fraction = getItemFraction(i, scrollOffset, itemCount);
+            isValid = isInterpolationEnable ? table.getInterpolatedValue(fraction, value) : table.getValue(fraction, value);
+            if (!isValid) {
+                continue;
+            }
+            out.add(getAdapterPosition(i, itemCount), value[0], value[1], value[2], fraction);
+        }
+    }
+
+    /**
+     * 判断某个Item当前是否可见 (不需要计算整个布局)
+     *
+     * @param position       Adapter中的索引
+     * @param scrollOffset   当前偏移量
+     * @param itemCount      Item总数
+     * @param totalItemCount 普通模式下用来限制范围的Item总数
+     * @return 该Item在Path上的位置 (0~1)，不可见时返回-1
+     */
+    public float getVisibleItemFraction(int position, float scrollOffset, int itemCount, int totalItemCount) {
+        int first, end, index;
+        if (isSatisfiedLoopScroll(itemCount)) {
+            end = getOverflowCount(scrollOffset, itemCount);
+            first = end - mItemCountInScreen - 1;
+            //窗口内第一个对应position的索引
+            index = first + fixOverflowIndex(position - first, itemCount);
+        } else {
+            first = findFirstVisibleItem(scrollOffset, itemCount);
+            end = Math.min(first + mItemCountInScreen, totalItemCount);
+            index = position;
+        }
+        if (index < first || index >= end) {
+            return -1;
+        }
+        float fraction = getItemFraction(index, scrollOffset, itemCount);
+        return fraction >= 0 && fraction < 1 ? fraction : -1;
+    }
+
+    /**
+     * 计算不可见的Item距离Path起点的距离 (无限循环模式下会选择较近的一边)
+     *
+     * @param position        Adapter中的索引
+     * @param closestPosition 当前离目标落点最近的Item索引
+     * @param scrollOffset    当前偏移量
+     * @param itemCount       Item总数
+     */
+    public float getInvisibleItemDistance(int position, int closestPosition, float scrollOffset, int itemCount) {
+        //如果设置了无限滚动的话，判断哪一边更接近来决定是向前滚动还是向后滚动
+        if (isSatisfiedLoopScroll(itemCount)) {
+            //从closestPosition往后数和往前数，分别要数几个Item才到position
+            int forward = fixOverflowIndex(position - closestPosition, itemCount);
+            int backward = itemCount - forward;
+            position = forward <= backward ? closestPosition + forward : closestPosition - backward;
+        }
+        //计算选中position与Path起点之间的距离。
+        return position * mItemOffset - scrollOffset;
+    }
+
+    /**
+     * 找出离目标落点最近的Item (不需要计算整个布局)
+     * Item是等距排列的，所以只需比较理论位置前后的几个Item，距离相同时取靠前的一个 (与逐个比较的结果一致)
+     *
+     * @param scrollOffset   偏移量 (可以是假设的偏移量，例如惯性滚动的终点)
+     * @param itemCount      Item总数
+     * @param totalItemCount 普通模式下用来限制范围的Item总数
+     * @param targetFraction 目标落点 (0~1)
+     * @return Adapter中的索引，没有可见的Item时返回-1
+     */
+    public int findClosestPosition(float scrollOffset, int itemCount, int totalItemCount, float targetFraction) {
+        int first, end, shift;
+        if (isSatisfiedLoopScroll(itemCount)) {
+            end = getOverflowCount(scrollOffset, itemCount);
+            first = end - mItemCountInScreen - 1;
+            shift = itemCount;
+        } else {
+            first = findFirstVisibleItem(scrollOffset, itemCount);
+            end = Math.min(first + mItemCountInScreen, totalItemCount);
+            shift = 0;
+        }
+        if (first >= end) {
+            return -1;
+        }
+        //可见的Item是连续的：[low, high]，先估算再按getValue的判断条件修正
+        int low = clamp((long) Math.ceil(scrollOffset / (double) mItemOffset) - shift, first, end);
+        while (low > first && getItemFraction(low - 1, scrollOffset, itemCount) >= 0) {
+            low--;
+        }
+        while (low < end && getItemFraction(low, scrollOffset, itemCount) < 0) {
+            low++;
+        }
+        int high = clamp((long) Math.ceil((mPathLength + scrollOffset) / (double) mItemOffset) - shift - 1, low - 1, end - 1);
+        while (high + 1 < end && getItemFraction(high + 1, scrollOffset, itemCount) < 1) {
+            high++;
+        }
+        while (high >= low && getItemFraction(high, scrollOffset, itemCount) >= 1) {
+            high--;
+        }
+        if (high < low) {
+            return -1;
+        }
+        int closest = clamp((long) Math.floor((targetFraction * mPathLength + scrollOffset) / mItemOffset) - shift, low, high);
+        int from = Math.max(low, closest - 1);
+        int to = Math.min(high, closest + 2);
+        int hitIndex = from;
+        float hitFraction = Math.abs(getItemFraction(from, scrollOffset, itemCount) - targetFraction);
+        for (int i = from + 1; i <= to; i++) {
+            float tempFraction = Math.abs(getItemFraction(i, scrollOffset, itemCount) - targetFraction);
+            //跟现在认为最近的距离做比较，取更近的那一方
+            if (tempFraction < hitFraction) {
+                hitIndex = i;
+                hitFraction = tempFraction;
+            }
+        }
+        return getAdapterPosition(hitIndex, itemCount);
+    }
+
+    /**
+     * Adapter索引对应的Item在Path上的位置 (不可见的Item会 < 0 或者 >= 1)
+     * 无限循环模式下同一个Item每隔itemCount个Item就会重复一次，取离Path最近的那一个
+     */
+    public float getItemFractionByPosition(int position, float scrollOffset, int itemCount) {
+        float fraction = getItemFraction(position, scrollOffset, itemCount);
+        if (isSatisfiedLoopScroll(itemCount)) {
+            //可见的那一个离Path中点不会超过0.5，其他的都要超过 周期 - 0.5 (周期 > 1)
+            float period = (float) itemCount * mItemOffset / mPathLength;
+            fraction += Math.round((.5F - fraction) / period) * period;
+        }
+        return fraction;
+    }
+
+    /**
+     * 按滚动方向找出接下来将要进入Path的Item (用于预取)
+     * 偏移量增大时，后面的Item从Path终点进入；偏移量减小时，前面的Item从Path起点进入
+     *
+     * @param delta 滚动方向
+     * @param count 最多找几个
+     * @param out   每两个元素为一组：Adapter中的索引，还需滚动多少距离才进入Path (px)，长度至少为count * 2
+     * @return 找到的Item个数 (普通模式和溢出模式下到了尽头就没有了)
+     */
+    public int findPrefetchPositions(float scrollOffset, float delta, int itemCount, int totalItemCount,
+                                     int count, int[] out) {
+        if (delta == 0 || itemCount == 0) {
+            return 0;
+        }
+        boolean isLoop = isSatisfiedLoopScroll(itemCount);
+        int shift = isLoop ? itemCount : 0;
+        int index;
+        if (delta > 0) {
+            //第一个还没进入Path终点的Item (在Path上的位置 >= 1)
+            index = (int) Math.ceil((mPathLength + scrollOffset) / (double) mItemOffset) - shift;
+            while (getItemFraction(index - 1, scrollOffset, itemCount) >= 1) {
+                index--;
+            }
+            while (getItemFraction(index, scrollOffset, itemCount) < 1) {
+                index++;
+            }
+        } else {
+            //最后一个还没进入Path起点的Item (在Path上的位置 < 0)
+            index = (int) Math.ceil(scrollOffset / (double) mItemOffset) - shift - 1;
+            while (getItemFraction(index + 1, scrollOffset, itemCount) < 0) {
+                index++;
+            }
+            while (getItemFraction(index, scrollOffset, itemCount) >= 0) {
+                index--;
+            }
+        }
+        //无限循环模式下再多就重复了
+        count = Math.min(count, itemCount);
+        int found = 0;
+        for (; found < count; found++, index += delta > 0 ? 1 : -1) {
+            int position = getAdapterPosition(index, itemCount);
+            if (!isLoop && (position < 0 || position >= totalItemCount)) {
+                break;
+            }
+            float distance = (getItemFraction(index, scrollOffset, itemCount) - (delta > 0 ? 1 : 0)) * mPathLength;
+            out[found * 2] = position;
+            out[found * 2 + 1] = (int) Math.abs(distance);
+        }
+        return found;
+    }
+
+    /**
+     * 预测惯性滚动停下时的偏移量 (普通模式和溢出模式下会被限制在可滚动的范围内)
+     *
+     * @param flingDistance 根据速度算出来的滚动距离
+     */
+    public float predictFlingOffset(float scrollOffset, float flingDistance, int itemCount) {
+        if (isSatisfiedLoopScroll(itemCount)) {
+            //每滚动itemCount个Item的距离，布局就会重复一次，所以只需取余数部分，再移回到正常的偏移量范围内
+            //(updateOffset只能处理一次越界)
+            float period = (float) itemCount * mItemOffset;
+            float offset = scrollOffset + flingDistance % period;
+            if (offset > getItemLength(itemCount)) {
+                offset -= period;
+            } else if (offset <= -mPathLength) {
+                offset += period;
+            }
+            return offset;
+        }
+        return updateOffset(scrollOffset, flingDistance, itemCount);
+    }
+
+    /**
+     * 惯性滚动需要滚动的实际距离：先滚到预测的终点，再补上目标Item到落点的距离，
+     * 这样一次滚动就能让目标Item刚好停在落点上
+     *
+     * @param position       目标Item ({@link #findClosestPosition}在预测的终点上找出来的Item)
+     * @param flingDistance  根据速度算出来的滚动距离
+     * @param targetFraction 目标落点 (0~1)
+     * @return 目标Item在终点时不可见则返回0
+     */
+    public float getFlingSnapDistance(int position, float scrollOffset, float flingDistance,
+                                      int itemCount, int totalItemCount, float targetFraction) {
+        float predictedOffset = predictFlingOffset(scrollOffset, flingDistance, itemCount);
+        float fraction = getVisibleItemFraction(position, predictedOffset, itemCount, totalItemCount);
+        if (fraction < 0) {
+            return 0;
+        }
+        //无限循环模式下终点是取余后的，滚动距离不能取余 (否则会往反方向滚)
+        float distance = isSatisfiedLoopScroll(itemCount) ? flingDistance : predictedOffset - scrollOffset;
+        return distance + (fraction - targetFraction) * mPathLength;
+    }
+
+    private static int clamp(long value, int min, int max) {
+        return (int) Math.max(min, Math.min(value, max));
+    }
+
+    /**
+     * @param index        {@link #computeLayoutRange(float, int, int)}范围内的Item索引
+     * @param scrollOffset 当前偏移量
+     * @param itemCount    Item总数
+     * @return 该Item在Path上的位置 (不在0~1之间的即为不可见)
+     */
+    public float getItemFraction(int index, float scrollOffset, int itemCount) {
+        if (isSatisfiedLoopScroll(itemCount)) {
+            index += itemCount;
+        }
+        return (index * mItemOffset - scrollOffset) / mPathLength;
+    }
+
+    /**
+     * 把{@link #computeLayoutRange(float, int, int)}范围内的Item索引转换成Adapter中的索引
+     */
+    public int getAdapterPosition(int index, int itemCount) {
+        if (!isSatisfiedLoopScroll(itemCount)) {
+            return index;
+        }
+        int pos = index % itemCount;
+        if (pos < 0) {
+            if (pos == -itemCount) {
+                pos = 0;
+            } else {
+                // [0,1,2,3,4,5,6,7,8,9]
+                // -9 --> 1   -8 --> 2
+                pos += itemCount;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * 根据Item在Path上的位置来获取对应的缩放比例
+     *
+     * @param scaleRatio 缩放比例，格式见PathLayoutManager#setItemScaleRatio
+     * @param fraction   Item位置相对于Path总长度的百分比
+     * @return 该Item的缩放比例
+     */
+    public static float getScale(float[] scaleRatio, float fraction) {
+        boolean isHasMin = false;
+        boolean isHasMax = false;
+        float minScale = 0;
+        float maxScale = 0;
+        float scalePosition;
+        float minFraction = 1, maxFraction = 1;
+        //必须从小到大遍历，才能找到最贴近fraction的scale
+        for (int i = 1; i < scaleRatio.length; i += 2) {
+            scalePosition = scaleRatio[i];
+            if (scalePosition <= fraction) {
+                minScale = scaleRatio[i - 1];
+                minFraction = scaleRatio[i];
+                isHasMin = true;
+            } else {
+                break;
+            }
+        }
+        //必须从大到小遍历，才能找到最贴近fraction的scale
+        for (int i = scaleRatio.length - 1; i >= 1; i -= 2) {
+            scalePosition = scaleRatio[i];
+            if (scalePosition >= fraction) {
+                maxScale = scaleRatio[i - 1];
+                maxFraction = scaleRatio[i];
+                isHasMax = true;
+            } else {
+                break;
+            }
+        }
+        if (!isHasMin) {
+            minScale = 1;
+        }
+        if (!isHasMax) {
+            maxScale = 1;
+        }
+        fraction = solveTwoPointForm(minFraction, maxFraction, fraction);
+        float distance = maxScale - minScale;
+        float scale = distance * fraction;
+        float result = minScale + scale;
+        return isFinite(result) ? result : minScale;
+    }
+
+    /**
+     * 将基于总长度的百分比转换成基于某个片段的百分比 (解两点式直线方程)
+     *
+     * @param startX   片段起始百分比
+     * @param endX     片段结束百分比
+     * @param currentX 总长度百分比
+     * @return 该片段的百分比
+     */
+    private static float solveTwoPointForm(float startX, float endX, float currentX) {
+        return (currentX - startX) / (endX - startX);
+    }
+
+    /**
+     * 判断数值是否合法
+     *
+     * @param value 要判断的数值
+     * @return 合法为true，反之
+     */
+    private static boolean isFinite(float value) {
+        return !Float.isNaN(value) && !Float.isInfinite(value);
+    }
+
+    /**
+     * 把小于0或者大于getItemCount()的索引转换成合法的索引
+     * 比如: getItemCount() = 10
+     * 如果此时index传 11 那么就返回 1
+     * 如果index为 -1 则返回 10
+     */
+    public static int fixOverflowIndex(int index, int count) {
+        index %= count;
+        return index < 0 ? index + count : index;
+    }
+}
@@ -0,0 +1,38 @@
+package com.wuyr.pathlayoutmanager.core;
+
+/**
+ * 采样所需的路径数据 (按轮廓逐个遍历，用法与PathMeasure一致)
+ */
+public interface PathSource {
+
+    /**
+     * 回到第一个轮廓
+     */
+    void reset();
+
+    /**
+     * @return 当前轮廓的长度
+     */
+    float getLength();
+
+    /**
+     * @return 当前轮廓是否闭合
+     */
+    boolean isClosed();
+
+    /**
+     * 获取当前轮廓上某个位置的坐标和切线
+     *
+     * @param distance 距离当前轮廓起点的长度
+     * @param position 坐标 {x, y}
+     * @param tangent  切线 {x, y}
+     */
+    void getPosTan(float distance, float[] position, float[] tangent);
+
+    /**
+     * 移动到下一个轮廓
+     *
+     * @return 没有下一个轮廓时返回false
+     */
+    boolean nextContour();
+}
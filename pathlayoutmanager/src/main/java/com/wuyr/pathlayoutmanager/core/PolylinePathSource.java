@@ -0,0 +1,107 @@
+package com.wuyr.pathlayoutmanager.core;
+
+/**
+ * 由折线组成的路径数据，不依赖android.graphics，可以在JVM上直接使用 (单元测试、基准测试)
+ * 曲线需要先由调用方展开成折线
+ */
+public class PolylinePathSource implements PathSource {
+
+    private final float[][] mContours;
+    private final boolean[] mClosed;
+    private final float[][] mSegmentStarts; //每条线段的起点距离轮廓起点的长度
+    private int mCurrent;
+
+    /**
+     * @param contours 每个轮廓的顶点坐标 {x0, y0, x1, y1, ...}，每个轮廓至少包含一个点
+     */
+    public PolylinePathSource(float[]... contours) {
+        if (contours.length == 0) {
+            throw new NullPointerException("path is empty!");
+        }
+        mContours = contours;
+        mClosed = new boolean[contours.length];
+        mSegmentStarts = new float[contours.length][];
+        for (int i = 0; i < contours.length; i++) {
+            float[] points = contours[i];
+            if (points.length < 2 || points.length % 2 != 0) {
+                throw new IllegalArgumentException("Array length no match!");
+            }
+            int count = points.length / 2;
+            mClosed[i] = count > 2 && points[0] == points[points.length - 2] && points[1] == points[points.length - 1];
+            float[] starts = new float[count];
+            for (int j = 1; j < count; j++) {
+                float dx = points[j * 2] - points[j * 2 - 2];
+                float dy = points[j * 2 + 1] - points[j * 2 - 1];
+                starts[j] = starts[j - 1] + (float) Math.sqrt(dx * dx + dy * dy);
+            }
+            mSegmentStarts[i] = starts;
+        }
+    }
+
+    @Override
+    public void reset() {
+        mCurrent = 0;
+    }
+
+    @Override
+    public float getLength() {
+        float[] starts = mSegmentStarts[mCurrent];
+        return starts[starts.length - 1];
+    }
+
+    @Override
+    public boolean isClosed() {
+        return mClosed[mCurrent];
+    }
+
+    @Override
+    public void getPosTan(float distance, float[] position, float[] tangent) {
+        float[] points = mContours[mCurrent];
+        float[] starts = mSegmentStarts[mCurrent];
+        int last = starts.length - 1;
+        if (last == 0) {
+            position[0] = points[0];
+            position[1] = points[1];
+            tangent[0] = 1;
+            tangent[1] = 0;
+            return;
+        }
+        distance = Math.max(0, Math.min(distance, starts[last]));
+        //找出distance所在的线段 (最后一个起点 <= distance的线段)，落在长度为0的线段上时往前找
+        int low = 0;
+        int high = last - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= distance) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        while (low > 0 && starts[low + 1] == starts[low]) {
+            low--;
+        }
+        float segmentLength = starts[low + 1] - starts[low];
+        float x0 = points[low * 2], y0 = points[low * 2 + 1];
+        float x1 = points[low * 2 + 2], y1 = points[low * 2 + 3];
+        float t = segmentLength > 0 ? (distance - starts[low]) / segmentLength : 0;
+        position[0] = x0 + (x1 - x0) * t;
+        position[1] = y0 + (y1 - y0) * t;
+        if (segmentLength > 0) {
+            tangent[0] = (x1 - x0) / segmentLength;
+            tangent[1] = (y1 - y0) / segmentLength;
+        } else {
+            tangent[0] = 1;
+            tangent[1] = 0;
+        }
+    }
+
+    @Override
+    public boolean nextContour() {
+        if (mCurrent + 1 < mContours.length) {
+            mCurrent++;
+            return true;
+        }
+        return false;
+    }
+}
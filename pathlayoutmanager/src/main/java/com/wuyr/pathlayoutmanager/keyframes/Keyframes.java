@@ -1,127 +1,159 @@
 package com.wuyr.pathlayoutmanager.keyframes;
 
 import android.graphics.Path;
-import android.graphics.PathMeasure;
 import android.support.annotation.FloatRange;
 
+import com.wuyr.pathlayoutmanager.core.KeyframeTable;
+
 /**
  * Created by wuyr on 17-11-22 上午12:45.
  * GitHub: https://github.com/wuyr/PathLayoutManager
  */
 public class Keyframes {
 
-    private static final float PRECISION = .5F;
-    private int mNumPoints;
-    private float[] mX;
-    private float[] mY;
-    private float[] mAngle;
+    /**
+     * 默认的采样精度 (px)
+     */
+    public static final float PRECISION = KeyframeTable.PRECISION;
+    private KeyframeTable mTable;
     private PosTan mTemp;
-    private float mMaxX;
-    private float mMaxY;
+    private float[] mValue;
 
     public Keyframes(Path path) {
-        initPath(path);
-        mTemp = new PosTan();
+        this(path, PRECISION);
     }
 
-    private void initPath(Path path) {
-        if (path == null || path.isEmpty()) {
-            throw new NullPointerException("path is empty!");
-        }
-        final PathMeasure pathMeasure = new PathMeasure(path, false);
-        mX = new float[0];
-        mY = new float[0];
-        mAngle = new float[0];
-        do {
-            final float pathLength = pathMeasure.getLength();
-            final int numPoints = (int) (pathLength / PRECISION) + 1;
-            final float[] x = new float[numPoints];
-            final float[] y = new float[numPoints];
-            final float[] angle = new float[numPoints];
-            final float[] position = new float[2];
-            final float[] tangent = new float[2];
-            for (int i = 0; i < numPoints; ++i) {
-                final float distance = (i * pathLength) / (numPoints - 1);
-                pathMeasure.getPosTan(distance, position, tangent);
-                if (position[0] > mMaxX) {
-                    mMaxX = position[0];
-                }
-                if (position[1] > mMaxY) {
-                    mMaxY = position[1];
-                }
-                x[i] = position[0];
-                y[i] = position[1];
-                angle[i] = fixAngle((float) (Math.atan2(tangent[1], tangent[0]) * 180F / Math.PI));
-            }
-            mNumPoints += numPoints;
-
-            float[] tmpX = new float[mX.length + x.length];
-            System.arraycopy(mX, 0, tmpX, 0, mX.length);
-            System.arraycopy(x, 0, tmpX, mX.length, x.length);
-            mX = tmpX;
-
-            float[] tmpY = new float[mY.length + y.length];
-            System.arraycopy(mY, 0, tmpY, 0, mY.length);
-            System.arraycopy(y, 0, tmpY, mY.length, y.length);
-            mY = tmpY;
-
-            float[] tmpAngle = new float[mAngle.length + angle.length];
-            System.arraycopy(mAngle, 0, tmpAngle, 0, mAngle.length);
-            System.arraycopy(angle, 0, tmpAngle, mAngle.length, angle.length);
-            mAngle = tmpAngle;
-        } while (pathMeasure.nextContour());
+    /**
+     * @param path      目标路径
+     * @param precision 采样精度 (px)，配合{@link #getInterpolatedValue(float)}使用时可以适当调大以节省内存
+     */
+    public Keyframes(Path path, float precision) {
+        this(new KeyframeTable(new PathMeasureSource(path), precision));
     }
 
     /**
-     * 调整角度，使其在0 ~ 360之间
+     * 自适应采样：只在切线角度变化快的地方密集采样，直线和平缓的曲线只需很少的采样点
      *
-     * @param rotation 当前角度
-     * @return 调整后的角度
+     * @param path             目标路径
+     * @param maxPositionError 相邻采样点之间线性插值所允许的最大位置误差 (px)
+     * @param maxAngleError    相邻采样点之间所允许的最大角度变化 (度)
+     */
+    public Keyframes(Path path, float maxPositionError, float maxAngleError) {
+        this(new KeyframeTable(new PathMeasureSource(path), maxPositionError, maxAngleError));
+    }
+
+    /**
+     * @param table 已经采样好的数据
+     */
+    public Keyframes(KeyframeTable table) {
+        mTable = table;
+        mTemp = new PosTan();
+        mValue = new float[3];
+    }
+
+    /**
+     * @return 实际的采样数据
      */
-    private float fixAngle(float rotation) {
-        float angle = 360F;
-        if (rotation < 0) {
-            rotation += angle;
-        }
-        if (rotation > angle) {
-            rotation %= angle;
-        }
-        return rotation;
+    public KeyframeTable getTable() {
+        return mTable;
     }
 
     public int getMaxX() {
-        return (int) mMaxX;
+        return mTable.getMaxX();
     }
 
     public int getMaxY() {
-        return (int) mMaxY;
+        return mTable.getMaxY();
     }
 
     public PosTan getValue(@FloatRange(from = 0F, to = 1F) float fraction) {
-        if (fraction >= 1F || fraction < 0) {
-            return null;
-        } else {
-            int index = (int) (mNumPoints * fraction);
-            mTemp.set(mX[index], mY[index], mAngle[index]);
-            return mTemp;
-        }
+        return mTable.getValue(fraction, mValue) ? toPosTan() : null;
+    }
+
+    /**
+     * 按长度找到前后两个采样点，并对位置和角度进行插值
+     * (跟{@link #getValue(float)}相比，采样精度较低时也不会出现跳动)
+     *
+     * @param fraction 在Path上的位置 (0~1)
+     * @return 插值后的坐标和角度，fraction不合法时返回null
+     */
+    public PosTan getInterpolatedValue(@FloatRange(from = 0F, to = 1F) float fraction) {
+        return mTable.getInterpolatedValue(fraction, mValue) ? toPosTan() : null;
     }
 
     public PosTan getValue(int index) {
-        mTemp.set(mX[index], mY[index], mAngle[index]);
+        mTable.getValue(index, mValue);
+        return toPosTan();
+    }
+
+    private PosTan toPosTan() {
+        mTemp.set(mValue[0], mValue[1], mValue[2]);
         return mTemp;
     }
 
+    /**
+     * 把采样点压缩成一个交错存放的short数组 (每个点6字节，原来是12字节)，
+     * 坐标精度为 Path边界尺寸 / 65535，角度精度约为0.0055度
+     * (需在关键帧被使用之前调用)
+     */
+    public void pack() {
+        mTable.pack();
+    }
+
+    /**
+     * @return 是否已压缩存储
+     */
+    public boolean isPacked() {
+        return mTable.isPacked();
+    }
+
+    /**
+     * @return 采样数据大约占用的堆内存 (字节)
+     */
+    public int getByteSize() {
+        return mTable.getByteSize();
+    }
+
+    /**
+     * @return 采样数据是否是从磁盘缓存映射进来的
+     */
+    public boolean isMapped() {
+        return mTable.isMapped();
+    }
+
+    /**
+     * @return Path中轮廓 (子路径) 的个数
+     */
+    public int getContourCount() {
+        return mTable.getContourCount();
+    }
+
+    /**
+     * 根据在整条Path上的位置找出所在的轮廓 (二分查找)
+     *
+     * @param fraction 在整条Path上的位置 (0~1)
+     * @return 轮廓的索引，fraction不合法时返回-1
+     */
+    public int getContourIndex(@FloatRange(from = 0F, to = 1F) float fraction) {
+        return mTable.getContourIndex(fraction);
+    }
+
+    /**
+     * 把在整条Path上的位置转换成在所在轮廓上的位置
+     *
+     * @param fraction 在整条Path上的位置 (0~1)
+     * @return 在所在轮廓上的位置 (0~1)，fraction不合法时返回-1
+     */
+    public float getContourFraction(@FloatRange(from = 0F, to = 1F) float fraction) {
+        return mTable.getContourFraction(fraction);
+    }
+
     public int getPathLength() {
-//        因为PRECISION = 0.5
-//        return (int) (mNumPoints * PRECISION);
-        return mNumPoints / 2;
+        return mTable.getPathLength();
     }
 
     public void release() {
-        mX = null;
-        mY = null;
-        mAngle = null;
+        mTable.release();
         mTemp = null;
     }
 }
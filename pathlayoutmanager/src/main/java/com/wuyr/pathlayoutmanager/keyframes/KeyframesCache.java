@@ -0,0 +1,315 @@
+package com.wuyr.pathlayoutmanager.keyframes;
+
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 进程内共享的关键帧缓存
+ * 以Path的几何特征 + 采样方式作为key，同一个Path只需采样一次，
+ * key命中后还要对比{@link PathSignature}，不一致 (不同的Path算出了相同的key) 的话当作没有命中，
+ * 正在被使用的关键帧 (引用计数 > 0) 不会被回收，其余的按LRU规则在超出容量时回收
+ */
+public class KeyframesCache {
+
+    private static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+    //计算几何特征时，每隔多少px取样一次 (比采样精度粗得多，但足以区分只在局部不同的Path)
+    private static final float FINGERPRINT_SPACING = 4F;
+    //每个轮廓上取样个数的上下限
+    private static final int MIN_FINGERPRINT_SAMPLES = 16;
+    private static final int MAX_FINGERPRINT_SAMPLES = 4096;
+
+    private static KeyframesCache sInstance;
+
+    //accessOrder = true，遍历顺序即为 最久未使用 -> 最近使用
+    private final LinkedHashMap<Long, Entry> mEntries = new LinkedHashMap<>(16, .75F, true);
+    private final IdentityHashMap<Keyframes, Entry> mOwners = new IdentityHashMap<>();
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private int mSize;
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+    private int mDiskHitCount;
+    private KeyframesDiskCache mDiskCache;
+
+    private static class Entry {
+        final long key;
+        final PathSignature signature;
+        final Keyframes keyframes;
+        final int size;
+        int refCount;
+
+        Entry(long key, PathSignature signature, Keyframes keyframes) {
+            this.key = key;
+            this.signature = signature;
+            this.keyframes = keyframes;
+            size = keyframes.getByteSize() + signature.getByteSize();
+        }
+    }
+
+    private KeyframesCache() {
+    }
+
+    public static synchronized KeyframesCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new KeyframesCache();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 获取缓存中的关键帧，获取成功后引用计数+1，用完后需调用{@link #release(Keyframes)}
+     *
+     * @param key       {@link #computeKey(Path, float, float, float, boolean)}
+     * @param signature {@link PathSignature#of(Path)}
+     * @return 没有命中 (或者key相同但不是同一个Path) 则返回null
+     */
+    public Keyframes acquire(long key, PathSignature signature) {
+        KeyframesDiskCache diskCache;
+        synchronized (this) {
+            Entry entry = mEntries.get(key);
+            if (entry != null && !entry.signature.equals(signature)) {
+                mMissCount++;
+                return null;
+            }
+            if (entry != null) {
+                mHitCount++;
+                entry.refCount++;
+                return entry.keyframes;
+            }
+            diskCache = mDiskCache;
+            if (diskCache == null) {
+                mMissCount++;
+                return null;
+            }
+        }
+        //内存中没有的话，再看看磁盘缓存
+        //读文件的时候不能占着锁，否则其他线程 (包括主线程) 的查找都要等这里的IO
+        Keyframes keyframes = diskCache.get(key, signature);
+        synchronized (this) {
+            //读取期间可能已经有相同key的关键帧放了进来，要再检查一遍
+            Entry entry = mEntries.get(key);
+            if (entry == null) {
+                if (keyframes == null) {
+                    mMissCount++;
+                    return null;
+                }
+                mDiskHitCount++;
+                entry = addEntry(key, signature, keyframes);
+            } else {
+                if (keyframes != null) {
+                    keyframes.release();
+                }
+                if (!entry.signature.equals(signature)) {
+                    mMissCount++;
+                    return null;
+                }
+            }
+            mHitCount++;
+            entry.refCount++;
+            return entry.keyframes;
+        }
+    }
+
+    /**
+     * 把新构建的关键帧放进缓存，引用计数为1
+     * 如果在构建期间已经有相同key的关键帧放了进来，则丢弃新的，返回已有的；
+     * 已有的关键帧是另一个Path的 (key相同但签名不一致) 话，新的关键帧不放进缓存，直接返回
+     * (之后调用{@link #release(Keyframes)}时会直接释放)
+     *
+     * @return 应该使用的关键帧
+     */
+    public Keyframes put(long key, PathSignature signature, final Keyframes keyframes) {
+        KeyframesDiskCache diskCache = null;
+        Entry entry;
+        synchronized (this) {
+            entry = mEntries.get(key);
+            if (entry != null && !entry.signature.equals(signature)) {
+                return keyframes;
+            }
+            if (entry != null) {
+                keyframes.release();
+            } else {
+                entry = addEntry(key, signature, keyframes);
+                if (mDiskCache != null && !keyframes.isMapped()) {
+                    diskCache = mDiskCache;
+                    //写入磁盘期间也算作一次引用，防止数据在写完之前被回收
+                    entry.refCount++;
+                }
+            }
+            entry.refCount++;
+            trimToSize(mMaxSize);
+        }
+        if (diskCache != null) {
+            //序列化和写文件都在磁盘缓存的后台线程中进行，不占用当前线程，也不占着锁
+            diskCache.put(key, signature, keyframes, new Runnable() {
+                @Override
+                public void run() {
+                    release(keyframes);
+                }
+            });
+        }
+        return entry.keyframes;
+    }
+
+    private Entry addEntry(long key, PathSignature signature, Keyframes keyframes) {
+        Entry entry = new Entry(key, signature, keyframes);
+        mEntries.put(key, entry);
+        mOwners.put(keyframes, entry);
+        mSize += entry.size;
+        return entry;
+    }
+
+    /**
+     * 不再使用关键帧时调用，引用计数-1
+     * (不在缓存中的关键帧会直接释放)
+     */
+    public synchronized void release(Keyframes keyframes) {
+        if (keyframes == null) {
+            return;
+        }
+        Entry entry = mOwners.get(keyframes);
+        if (entry == null) {
+            keyframes.release();
+            return;
+        }
+        if (entry.refCount > 0) {
+            entry.refCount--;
+        }
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * 回收没有被使用的关键帧，直到总大小不超过maxSize
+     */
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<Long, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mSize > maxSize && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.refCount == 0) {
+                iterator.remove();
+                mOwners.remove(entry.keyframes);
+                mSize -= entry.size;
+                mEvictionCount++;
+                entry.keyframes.release();
+            }
+        }
+    }
+
+    /**
+     * 设置缓存容量
+     *
+     * @param maxSize 最大字节数 (正在被使用的关键帧不受此限制)
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize can not be negative!");
+        }
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * @return 当前缓存的总大小 (字节)
+     */
+    public synchronized int getSize() {
+        return mSize;
+    }
+
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * @return 内存中没有，但在磁盘缓存中命中的次数 (也算在{@link #getHitCount()}中)
+     */
+    public synchronized int getDiskHitCount() {
+        return mDiskHitCount;
+    }
+
+    /**
+     * 设置磁盘缓存，新采样的关键帧会写入磁盘，进程重启后可直接映射使用
+     *
+     * @param diskCache 传null则关闭磁盘缓存
+     */
+    public synchronized void setDiskCache(KeyframesDiskCache diskCache) {
+        mDiskCache = diskCache;
+    }
+
+    /**
+     * 回收所有没有被使用的关键帧
+     */
+    public synchronized void evictAll() {
+        trimToSize(-1);
+    }
+
+    /**
+     * 根据Path的几何特征和采样方式计算缓存的key
+     * Path没有提供获取路径数据的方法，所以这里用每个轮廓的长度、是否闭合，
+     * 以及轮廓上每隔{@link #FINGERPRINT_SPACING}px取样的点的坐标和切线作为几何特征
+     * (取样个数在{@link #MIN_FINGERPRINT_SAMPLES}到{@link #MAX_FINGERPRINT_SAMPLES}之间)
+     */
+    public static long computeKey(Path path, float precision, float maxPositionError,
+                                  float maxAngleError, boolean packed) {
+        long hash = 0xCBF29CE484222325L;
+        hash = mix(hash, Float.floatToIntBits(precision));
+        hash = mix(hash, Float.floatToIntBits(maxPositionError));
+        hash = mix(hash, Float.floatToIntBits(maxAngleError));
+        hash = mix(hash, packed ? 1 : 0);
+        if (path == null || path.isEmpty()) {
+            return hash;
+        }
+        final PathMeasure pathMeasure = new PathMeasure(path, false);
+        final float[] position = new float[2];
+        final float[] tangent = new float[2];
+        do {
+            final float length = pathMeasure.getLength();
+            hash = mix(hash, Float.floatToIntBits(length));
+            hash = mix(hash, pathMeasure.isClosed() ? 1 : 0);
+            final int samples = getFingerprintSamples(length);
+            for (int i = 0; i <= samples; i++) {
+                pathMeasure.getPosTan(length * i / samples, position, tangent);
+                hash = mix(hash, Float.floatToIntBits(position[0]));
+                hash = mix(hash, Float.floatToIntBits(position[1]));
+                hash = mix(hash, Float.floatToIntBits(tangent[0]));
+                hash = mix(hash, Float.floatToIntBits(tangent[1]));
+            }
+        } while (pathMeasure.nextContour());
+        return hash;
+    }
+
+    /**
+     * @return 长度为length的轮廓上的取样个数 (不包括终点)
+     */
+    static int getFingerprintSamples(float length) {
+        return Math.max(MIN_FINGERPRINT_SAMPLES,
+                Math.min(MAX_FINGERPRINT_SAMPLES, (int) Math.ceil(length / FINGERPRINT_SPACING)));
+    }
+
+    /**
+     * FNV-1a
+     */
+    private static long mix(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,194 @@
+package com.wuyr.pathlayoutmanager.keyframes;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.wuyr.pathlayoutmanager.core.KeyframeTable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 关键帧的磁盘缓存，采样数据以二进制格式保存在应用私有目录中，
+ * 读取时通过{@link FileChannel#map}映射，不需要重新采样，也不会复制到堆内存
+ * <p>
+ * 文件格式 (本机字节序):
+ * int magic, int version, long key, int payloadSize, 然后是{@link PathSignature}和{@link KeyframeTable#readFrom}所描述的数据
+ * 魔数、版本号、key或者文件大小对不上时 (包括字节序不同)，会删除文件并返回null，由调用方重新采样；
+ * 只是签名对不上的话 (另一个Path算出了相同的key)，文件还是有效的，只返回null
+ */
+public class KeyframesDiskCache {
+
+    private static final int MAGIC = 0x504C4B46; //"PLKF"
+    //文件格式改变时需要+1，旧版本的文件会被当成无效文件
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 20;
+    private static final String SUFFIX = ".kf";
+
+    private final File mDirectory;
+    private final ExecutorService mWriteExecutor;
+
+    public KeyframesDiskCache(@NonNull Context context) {
+        this(new File(context.getApplicationContext().getCacheDir(), "path_keyframes"));
+    }
+
+    public KeyframesDiskCache(@NonNull File directory) {
+        mDirectory = directory;
+        mWriteExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                Thread thread = new Thread(r, "PathLayoutManager-DiskCache");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * 读取缓存的关键帧
+     *
+     * @param key       {@link KeyframesCache#computeKey}
+     * @param signature {@link PathSignature#of}
+     * @return 没有缓存、文件无效或者不是同一个Path时返回null
+     */
+    public Keyframes get(long key, PathSignature signature) {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile randomAccessFile = null;
+        Keyframes keyframes = null;
+        boolean isSignatureMismatch = false;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size >= HEADER_SIZE) {
+                //映射之后即使关闭文件，buffer依然有效
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                buffer.order(ByteOrder.nativeOrder());
+                if (buffer.getInt() == MAGIC && buffer.getInt() == VERSION && buffer.getLong() == key
+                        && buffer.getInt() == size - HEADER_SIZE) {
+                    PathSignature fileSignature = PathSignature.readFrom(buffer);
+                    if (fileSignature != null && !fileSignature.equals(signature)) {
+                        isSignatureMismatch = true;
+                    } else if (fileSignature != null) {
+                        KeyframeTable table = KeyframeTable.readFrom(buffer);
+                        if (table != null) {
+                            keyframes = new Keyframes(table);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            keyframes = null;
+        } finally {
+            close(randomAccessFile);
+        }
+        if (keyframes == null && !isSignatureMismatch) {
+            //文件已损坏，删掉之后重新采样
+            file.delete();
+        }
+        return keyframes;
+    }
+
+    /**
+     * 在后台线程中把关键帧序列化并写入磁盘
+     * (序列化也在后台线程中进行，所以在onComplete回调之前，关键帧不能被释放)
+     *
+     * @param onComplete 写入完成 (无论成功与否) 后在后台线程中回调，可以为null
+     */
+    public void put(final long key, final PathSignature signature, final Keyframes keyframes,
+                    final Runnable onComplete) {
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    KeyframeTable table = keyframes.getTable();
+                    int payloadSize = signature.getSerializedSize() + table.getSerializedSize();
+                    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadSize).order(ByteOrder.nativeOrder());
+                    buffer.putInt(MAGIC).putInt(VERSION).putLong(key).putInt(payloadSize);
+                    signature.writeTo(buffer);
+                    table.writeTo(buffer);
+                    buffer.flip();
+                    write(getFile(key), buffer);
+                } finally {
+                    if (onComplete != null) {
+                        onComplete.run();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 先写到临时文件再重命名，防止写到一半时进程被杀而留下不完整的文件
+     */
+    private void write(File file, ByteBuffer buffer) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream outputStream = null;
+        boolean isSuccess = false;
+        try {
+            outputStream = new FileOutputStream(tmp);
+            FileChannel channel = outputStream.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            outputStream.getFD().sync();
+            isSuccess = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            close(outputStream);
+        }
+        if (!isSuccess || !tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * 删除所有缓存文件
+     */
+    public void clear() {
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File[] files = mDirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.getName().endsWith(SUFFIX)) {
+                            file.delete();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private File getFile(long key) {
+        return new File(mDirectory, Long.toHexString(key) + SUFFIX);
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.wuyr.pathlayoutmanager.keyframes;
+
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+
+import com.wuyr.pathlayoutmanager.core.PathSource;
+
+/**
+ * 通过PathMeasure为{@link com.wuyr.pathlayoutmanager.core.KeyframeTable}提供路径数据
+ */
+class PathMeasureSource implements PathSource {
+
+    private final Path mPath;
+    private final PathMeasure mPathMeasure;
+
+    PathMeasureSource(Path path) {
+        if (path == null || path.isEmpty()) {
+            throw new NullPointerException("path is empty!");
+        }
+        mPath = path;
+        mPathMeasure = new PathMeasure(path, false);
+    }
+
+    @Override
+    public void reset() {
+        mPathMeasure.setPath(mPath, false);
+    }
+
+    @Override
+    public float getLength() {
+        return mPathMeasure.getLength();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return mPathMeasure.isClosed();
+    }
+
+    @Override
+    public void getPosTan(float distance, float[] position, float[] tangent) {
+        mPathMeasure.getPosTan(distance, position, tangent);
+    }
+
+    @Override
+    public boolean nextContour() {
+        return mPathMeasure.nextContour();
+    }
+}
@@ -0,0 +1,110 @@
+package com.wuyr.pathlayoutmanager.keyframes;
+
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Path的几何签名，缓存命中时用来进一步确认是同一个Path
+ * ({@link KeyframesCache#computeKey}只是取样点的哈希值，两个Path只在取样点之间不同时key是一样的)
+ * <p>
+ * 记录每个轮廓的长度、是否闭合、起点和终点，以及跟计算key时错开半个间隔的取样点坐标，
+ * 跟key的取样点合起来，相当于取样间隔缩小了一半
+ */
+public class PathSignature {
+
+    //每个轮廓固定的部分：长度、是否闭合、起点和终点
+    private static final int CONTOUR_HEADER_SIZE = 6;
+
+    private final float[] mData;
+
+    private PathSignature(float[] data) {
+        mData = data;
+    }
+
+    /**
+     * 计算Path的几何签名
+     */
+    public static PathSignature of(Path path) {
+        if (path == null || path.isEmpty()) {
+            return new PathSignature(new float[0]);
+        }
+        final PathMeasure pathMeasure = new PathMeasure(path, false);
+        final float[] position = new float[2];
+        float[] data = new float[64];
+        int size = 0;
+        do {
+            final float length = pathMeasure.getLength();
+            final int samples = KeyframesCache.getFingerprintSamples(length);
+            int required = size + CONTOUR_HEADER_SIZE + samples * 2;
+            if (required > data.length) {
+                data = Arrays.copyOf(data, Math.max(required, data.length * 2));
+            }
+            data[size++] = length;
+            data[size++] = pathMeasure.isClosed() ? 1 : 0;
+            pathMeasure.getPosTan(0, position, null);
+            data[size++] = position[0];
+            data[size++] = position[1];
+            pathMeasure.getPosTan(length, position, null);
+            data[size++] = position[0];
+            data[size++] = position[1];
+            for (int i = 0; i < samples; i++) {
+                pathMeasure.getPosTan(length * (i + .5F) / samples, position, null);
+                data[size++] = position[0];
+                data[size++] = position[1];
+            }
+        } while (pathMeasure.nextContour());
+        return new PathSignature(Arrays.copyOf(data, size));
+    }
+
+    /**
+     * @return 所占用的内存 (字节)
+     */
+    int getByteSize() {
+        return mData.length * 4;
+    }
+
+    int getSerializedSize() {
+        return 4 + mData.length * 4;
+    }
+
+    /**
+     * 写入buffer，格式：int 个数，然后是签名数据
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(mData.length);
+        for (float value : mData) {
+            buffer.putFloat(value);
+        }
+    }
+
+    /**
+     * @return 数据不完整时返回null
+     */
+    static PathSignature readFrom(ByteBuffer buffer) {
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() / 4) {
+            return null;
+        }
+        float[] data = new float[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = buffer.getFloat();
+        }
+        return new PathSignature(data);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof PathSignature && Arrays.equals(mData, ((PathSignature) o).mData);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(mData);
+    }
+}
@@ -0,0 +1,163 @@
+package com.wuyr.pathlayoutmanager.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeyframeTableTest {
+
+    private static PathSource line(float x0, float y0, float x1, float y1) {
+        return new PolylinePathSource(new float[]{x0, y0, x1, y1});
+    }
+
+    @Test
+    public void fixedSampling_straightLine() {
+        KeyframeTable table = new KeyframeTable(line(0, 0, 100, 0), KeyframeTable.PRECISION);
+        float[] out = new float[3];
+        assertEquals(201, table.getNumPoints());
+        assertEquals(100, table.getPathLength());
+        assertEquals(100, table.getMaxX());
+        assertTrue(table.getValue(.5F, out));
+        assertEquals(50, out[0], .5F);
+        assertEquals(0, out[1], 0);
+        assertEquals(0, out[2], 0);
+    }
+
+    @Test
+    public void invalidFraction_returnsFalse() {
+        KeyframeTable table = new KeyframeTable(line(0, 0, 100, 0), KeyframeTable.PRECISION);
+        float[] out = new float[3];
+        assertFalse(table.getValue(1F, out));
+        assertFalse(table.getValue(-.1F, out));
+        assertFalse(table.getInterpolatedValue(1F, out));
+        assertEquals(-1, table.getContourIndex(1F));
+    }
+
+    @Test
+    public void angle_followsTangent() {
+        KeyframeTable table = new KeyframeTable(line(0, 0, 0, 100), KeyframeTable.PRECISION);
+        float[] out = new float[3];
+        table.getValue(.5F, out);
+        assertEquals(90, out[2], .01F);
+    }
+
+    @Test
+    public void coarsePrecision_itemPositionMatchesDistance() {
+        KeyframeTable table = new KeyframeTable(line(0, 0, 1000, 0), 50);
+        float[] out = new float[3];
+        assertEquals(1000, table.getPathLength());
+        //离起点999px的Item
+        assertTrue(table.getInterpolatedValue(999F / table.getPathLength(), out));
+        assertEquals(999, out[0], .01F);
+    }
+
+    @Test
+    public void interpolation_betweenCoarseSamples() {
+        KeyframeTable table = new KeyframeTable(line(0, 0, 100, 0), 10);
+        float[] out = new float[3];
+        assertTrue(table.getInterpolatedValue(.25F, out));
+        assertEquals(25, out[0], .01F);
+        table.getValue(.25F, out);
+        assertEquals(20, out[0], .01F);
+    }
+
+    @Test
+    public void contours_doNotBlend() {
+        KeyframeTable table = new KeyframeTable(new PolylinePathSource(
+                new float[]{0, 0, 100, 0}, new float[]{0, 50, 100, 50}), KeyframeTable.PRECISION);
+        assertEquals(2, table.getContourCount());
+        assertEquals(0, table.getContourIndex(.25F));
+        assertEquals(1, table.getContourIndex(.75F));
+        assertEquals(.5F, table.getContourFraction(.75F), .01F);
+        float[] out = new float[3];
+        table.getInterpolatedValue(.75F, out);
+        assertEquals(50, out[0], .5F);
+        assertEquals(50, out[1], 0);
+    }
+
+    @Test
+    public void adaptiveSampling_straightLineNeedsFewPoints() {
+        KeyframeTable table = new KeyframeTable(line(0, 0, 1000, 0), .5F, 1F);
+        assertTrue(table.getNumPoints() < 10);
+        assertEquals(1000, table.getPathLength());
+        float[] out = new float[3];
+        assertTrue(table.getValue(.3F, out));
+        assertEquals(300, out[0], .01F);
+    }
+
+    @Test
+    public void adaptiveSampling_densifiesAtCorners() {
+        KeyframeTable table = new KeyframeTable(new PolylinePathSource(
+                new float[]{0, 0, 500, 0, 500, 500}), .5F, 5F);
+        float[] out = new float[3];
+        table.getValue(.25F, out);
+        assertEquals(250, out[0], .5F);
+        assertEquals(0, out[1], .5F);
+        table.getValue(.75F, out);
+        assertEquals(500, out[0], .5F);
+        assertEquals(250, out[1], .5F);
+        assertEquals(90, out[2], .01F);
+    }
+
+    @Test
+    public void pack_keepsValuesWithinQuantizationError() {
+        KeyframeTable table = new KeyframeTable(new PolylinePathSource(
+                new float[]{10, 20, 300, 20, 300, 400}), KeyframeTable.PRECISION);
+        float[] expected = new float[3];
+        table.getValue(.6F, expected);
+        int size = table.getByteSize();
+        table.pack();
+        assertTrue(table.isPacked());
+        assertTrue(table.getByteSize() < size);
+        float[] actual = new float[3];
+        table.getValue(.6F, actual);
+        assertEquals(expected[0], actual[0], .01F);
+        assertEquals(expected[1], actual[1], .01F);
+        assertEquals(expected[2], actual[2], .01F);
+    }
+
+    @Test
+    public void serialize_roundTrip() {
+        KeyframeTable table = new KeyframeTable(new PolylinePathSource(
+                new float[]{0, 0, 100, 0}, new float[]{0, 50, 100, 100}), 2F, 2F);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(table.getSerializedSize()).order(ByteOrder.nativeOrder());
+        table.writeTo(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        KeyframeTable copy = KeyframeTable.readFrom(buffer);
+        assertNotNull(copy);
+        assertTrue(copy.isMapped());
+        assertEquals(table.getNumPoints(), copy.getNumPoints());
+        assertEquals(table.getContourCount(), copy.getContourCount());
+        float[] expected = new float[3];
+        float[] actual = new float[3];
+        for (float fraction = 0; fraction < 1; fraction += .05F) {
+            table.getInterpolatedValue(fraction, expected);
+            copy.getInterpolatedValue(fraction, actual);
+            assertEquals(expected[0], actual[0], 0);
+            assertEquals(expected[1], actual[1], 0);
+            assertEquals(expected[2], actual[2], 0);
+        }
+    }
+
+    @Test
+    public void readFrom_rejectsTruncatedData() {
+        KeyframeTable table = new KeyframeTable(line(0, 0, 100, 0), KeyframeTable.PRECISION);
+        ByteBuffer buffer = ByteBuffer.allocate(table.getSerializedSize());
+        table.writeTo(buffer);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 4);
+        assertEquals(null, KeyframeTable.readFrom(buffer));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPrecision_throws() {
+        new KeyframeTable(line(0, 0, 100, 0), 0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.wuyr.pathlayoutmanager.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 滚动时每一帧的布局计算不应该创建任何对象
+ */
+public class LayoutAllocationTest {
+
+    private static final int ITEM_COUNT = 100;
+    private static final int FRAMES = 10000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 5;
+    private static final float[] SCALE_RATIO = {.6F, 0, 1, .5F, .6F, 1};
+
+    @Test
+    public void scrollFrame_allocatesNothing() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (int mode = PathLayoutCore.SCROLL_MODE_NORMAL; mode <= PathLayoutCore.SCROLL_MODE_LOOP; mode++) {
+            KeyframeTable table = new KeyframeTable(new PolylinePathSource(
+                    new float[]{0, 0, 800, 0, 800, 800}), KeyframeTable.PRECISION);
+            PathLayoutCore core = new PathLayoutCore(50);
+            core.setPathLength(table.getPathLength());
+            core.setScrollMode(mode);
+            LayoutBuffer buffer = new LayoutBuffer();
+            float[] state = {0, 7};
+
+            //先预热，让buffer扩容到足够大，并且让JIT完成编译
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                runFrames(table, core, buffer, state);
+            }
+            //取多轮中的最小值，排除JIT、类加载等一次性的分配
+            long threadId = Thread.currentThread().getId();
+            long allocated = Long.MAX_VALUE;
+            float checksum = 0;
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                long before = threadBean.getThreadAllocatedBytes(threadId);
+                checksum += runFrames(table, core, buffer, state);
+                allocated = Math.min(allocated, threadBean.getThreadAllocatedBytes(threadId) - before);
+            }
+
+            //每一帧都分配的话至少有FRAMES * 16字节
+            assertTrue("mode " + mode + " checksum " + checksum + " allocated " + allocated, allocated < FRAMES);
+        }
+    }
+
+    /**
+     * @param state {偏移量, 每一帧滚动的距离}
+     */
+    private static float runFrames(KeyframeTable table, PathLayoutCore core, LayoutBuffer buffer, float[] state) {
+        float checksum = 0;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            float lastOffset = state[0];
+            state[0] = core.updateOffset(state[0], state[1], ITEM_COUNT);
+            if (lastOffset == state[0]) {
+                state[1] = -state[1];
+            }
+            core.computeLayoutItems(table, (frame & 1) == 0, state[0], ITEM_COUNT, ITEM_COUNT, buffer);
+            for (int i = 0; i < buffer.size(); i++) {
+                checksum += buffer.getX(i) + buffer.getChildAngle(i)
+                        + PathLayoutCore.getScale(SCALE_RATIO, buffer.getFraction(i));
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,418 @@
+package com.wuyr.pathlayoutmanager.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PathLayoutCoreTest {
+
+    private static final int ITEM_OFFSET = 50;
+    private static final int PATH_LENGTH = 500;
+    private static final int ITEM_COUNT = 20;
+
+    private PathLayoutCore mCore;
+
+    @Before
+    public void setUp() {
+        mCore = new PathLayoutCore(ITEM_OFFSET);
+        mCore.setPathLength(PATH_LENGTH);
+    }
+
+    @Test
+    public void itemCountInScreen() {
+        assertEquals(11, mCore.getItemCountInScreen());
+        mCore.setItemOffset(100);
+        assertEquals(6, mCore.getItemCountInScreen());
+    }
+
+    @Test
+    public void normalMode_clampsOffset() {
+        assertEquals(0, mCore.updateOffset(0, -10, ITEM_COUNT), 0);
+        assertEquals(451, mCore.updateOffset(0, 2000, ITEM_COUNT), 0);
+        assertEquals(30, mCore.updateOffset(10, 20, ITEM_COUNT), 0);
+        //Item总长度不超过Path长度时，不能滚动
+        assertEquals(0, mCore.updateOffset(0, 20, 5), 0);
+    }
+
+    @Test
+    public void overflowMode_clampsOffset() {
+        mCore.setScrollMode(PathLayoutCore.SCROLL_MODE_OVERFLOW);
+        assertEquals(-500, mCore.updateOffset(0, -1000, ITEM_COUNT), 0);
+        assertEquals(951, mCore.updateOffset(0, 2000, ITEM_COUNT), 0);
+    }
+
+    @Test
+    public void loopMode_wrapsOffset() {
+        mCore.setScrollMode(PathLayoutCore.SCROLL_MODE_LOOP);
+        assertTrue(mCore.isSatisfiedLoopScroll(ITEM_COUNT));
+        assertFalse(mCore.isSatisfiedLoopScroll(5));
+        assertEquals(-1, mCore.updateOffset(900, 100, ITEM_COUNT), 0);
+        assertEquals(501, mCore.updateOffset(-490, -10, ITEM_COUNT), 0);
+    }
+
+    @Test
+    public void normalMode_layoutRange() {
+        int end = mCore.computeLayoutRange(0, ITEM_COUNT, ITEM_COUNT);
+        assertEquals(0, mCore.getFirstVisibleItemPos());
+        assertEquals(11, end);
+        end = mCore.computeLayoutRange(125, ITEM_COUNT, ITEM_COUNT);
+        assertEquals(3, mCore.getFirstVisibleItemPos());
+        assertEquals(14, end);
+        assertEquals(25F / PATH_LENGTH, mCore.getItemFraction(3, 125, ITEM_COUNT), 1e-6F);
+        end = mCore.computeLayoutRange(451, ITEM_COUNT, ITEM_COUNT);
+        assertEquals(20, end);
+    }
+
+    @Test
+    public void loopMode_layoutRange() {
+        mCore.setScrollMode(PathLayoutCore.SCROLL_MODE_LOOP);
+        int end = mCore.computeLayoutRange(0, ITEM_COUNT, ITEM_COUNT);
+        int expectedPosition = 0;
+        for (int i = mCore.getFirstVisibleItemPos(); i < end; i++) {
+            float fraction = mCore.getItemFraction(i, 0, ITEM_COUNT);
+            if (fraction >= 0 && fraction < 1) {
+                assertEquals(expectedPosition++, mCore.getAdapterPosition(i, ITEM_COUNT));
+            }
+        }
+        assertEquals(10, expectedPosition);
+        assertEquals(19, mCore.getAdapterPosition(-21, ITEM_COUNT));
+        assertEquals(0, mCore.getAdapterPosition(-20, ITEM_COUNT));
+    }
+
+    /**
+     * 原来的实现：从0开始逐个查找
+     */
+    private static int scanFirstVisibleItem(float scrollOffset, int itemOffset, int itemCount, int lastValue) {
+        for (int i = 0; i < itemCount; i++) {
+            if (i * itemOffset - scrollOffset >= 0) {
+                return i;
+            }
+        }
+        return lastValue;
+    }
+
+    @Test
+    public void firstVisibleItem_matchesScan() {
+        Random random = new Random(42);
+        int[] itemOffsets = {1, 7, 50, 333};
+        int[] itemCounts = {1, 2, 10, 1000, 50000};
+        for (int mode = PathLayoutCore.SCROLL_MODE_NORMAL; mode <= PathLayoutCore.SCROLL_MODE_OVERFLOW; mode++) {
+            for (int itemOffset : itemOffsets) {
+                for (int itemCount : itemCounts) {
+                    PathLayoutCore core = new PathLayoutCore(itemOffset);
+                    core.setPathLength(PATH_LENGTH);
+                    core.setScrollMode(mode);
+                    int itemLength = core.getItemLength(itemCount);
+                    for (int n = 0; n < 200; n++) {
+                        float target = (random.nextFloat() * 1.2F - .1F) * itemLength;
+                        //整数倍的位置最容易出错
+                        if (n % 4 == 0) {
+                            target = random.nextInt(itemCount + 1) * itemOffset;
+                        }
+                        float offset = core.updateOffset(0, target, itemCount);
+                        int expected = scanFirstVisibleItem(offset, itemOffset, itemCount, -1);
+                        int actual = core.findFirstVisibleItem(offset, itemCount);
+                        assertEquals("offset " + offset, expected < 0 ? itemCount : expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void firstVisibleItem_floatBoundaries() {
+        PathLayoutCore core = new PathLayoutCore(100);
+        core.setPathLength(PATH_LENGTH);
+        float[] offsets = {0, -0F, -1, .0001F, 99.99999F, 100, 100.00001F, 1E7F, Math.nextUp(1E7F), 5.5E7F};
+        for (float offset : offsets) {
+            int expected = scanFirstVisibleItem(offset, 100, 1000000, -1);
+            assertEquals("offset " + offset, expected < 0 ? 1000000 : expected,
+                    core.findFirstVisibleItem(offset, 1000000));
+        }
+    }
+
+    @Test
+    public void layoutItems_matchScan() {
+        KeyframeTable table = new KeyframeTable(new PolylinePathSource(
+                new float[]{0, 0, PATH_LENGTH, 0}), KeyframeTable.PRECISION);
+        Random random = new Random(7);
+        LayoutBuffer buffer = new LayoutBuffer();
+        for (int mode = PathLayoutCore.SCROLL_MODE_NORMAL; mode <= PathLayoutCore.SCROLL_MODE_OVERFLOW; mode++) {
+            mCore.setScrollMode(mode);
+            int lastFirst = 0;
+            for (int n = 0; n < 500; n++) {
+                float offset = mCore.updateOffset(0, (random.nextFloat() * 1.4F - .2F) * 1000, ITEM_COUNT);
+                mCore.computeLayoutItems(table, false, offset, ITEM_COUNT, ITEM_COUNT, buffer);
+                //原来的实现：找不到时沿用上一次的值，窗口内的Item都不可见
+                lastFirst = scanFirstVisibleItem(offset, ITEM_OFFSET, ITEM_COUNT, lastFirst);
+                int end = Math.min(lastFirst + mCore.getItemCountInScreen(), ITEM_COUNT);
+                int expectedSize = 0;
+                float[] value = new float[3];
+                for (int i = lastFirst; i < end; i++) {
+                    float fraction = (i * ITEM_OFFSET - offset) / PATH_LENGTH;
+                    if (table.getValue(fraction, value)) {
+                        assertEquals(i, buffer.getIndex(expectedSize));
+                        assertEquals(fraction, buffer.getFraction(expectedSize), 0);
+                        expectedSize++;
+                    }
+                }
+                assertEquals("offset " + offset, expectedSize, buffer.size());
+            }
+        }
+    }
+
+    @Test
+    public void visibleItemFraction_matchesLayoutItems() {
+        KeyframeTable table = new KeyframeTable(new PolylinePathSource(
+                new float[]{0, 0, PATH_LENGTH, 0}), KeyframeTable.PRECISION);
+        Random random = new Random(11);
+        LayoutBuffer buffer = new LayoutBuffer();
+        for (int mode = PathLayoutCore.SCROLL_MODE_NORMAL; mode <= PathLayoutCore.SCROLL_MODE_LOOP; mode++) {
+            mCore.setScrollMode(mode);
+            for (int n = 0; n < 300; n++) {
+                float offset = mCore.updateOffset(0, (random.nextFloat() * 1.4F - .2F) * 1000, ITEM_COUNT);
+                mCore.computeLayoutItems(table, false, offset, ITEM_COUNT, ITEM_COUNT, buffer);
+                for (int position = 0; position < ITEM_COUNT; position++) {
+                    int index = buffer.indexOf(position);
+                    float expected = index < 0 ? -1 : buffer.getFraction(index);
+                    assertEquals("mode " + mode + " offset " + offset + " position " + position, expected,
+                            mCore.getVisibleItemFraction(position, offset, ITEM_COUNT, ITEM_COUNT), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void invisibleItemDistance_normalMode() {
+        for (int closest = -1; closest < ITEM_COUNT; closest++) {
+            for (int position = 0; position < ITEM_COUNT; position++) {
+                float expected = position * ITEM_OFFSET - 123F;
+                assertEquals(expected, mCore.getInvisibleItemDistance(position, closest, 123F, ITEM_COUNT), 0);
+            }
+        }
+    }
+
+    @Test
+    public void invisibleItemDistance_loopModeTakesShorterSide() {
+        mCore.setScrollMode(PathLayoutCore.SCROLL_MODE_LOOP);
+        assertTrue(mCore.isSatisfiedLoopScroll(ITEM_COUNT));
+        //往前数2个就到了，不应该往后数18个
+        assertEquals(-1 * ITEM_OFFSET - 123F, mCore.getInvisibleItemDistance(19, 1, 123F, ITEM_COUNT), 0);
+        assertEquals(21 * ITEM_OFFSET - 123F, mCore.getInvisibleItemDistance(1, 19, 123F, ITEM_COUNT), 0);
+        for (int closest = 0; closest < ITEM_COUNT; closest++) {
+            for (int position = 0; position < ITEM_COUNT; position++) {
+                float distance = mCore.getInvisibleItemDistance(position, closest, 123F, ITEM_COUNT) + 123F;
+                int target = (int) (distance / ITEM_OFFSET);
+                assertEquals(target * ITEM_OFFSET, distance, 0);
+                //目标对应的还是同一个Item，并且是两边中较近的一个 (一样近时往后数)
+                assertEquals(position, PathLayoutCore.fixOverflowIndex(target, ITEM_COUNT));
+                int forward = PathLayoutCore.fixOverflowIndex(position - closest, ITEM_COUNT);
+                assertEquals(Math.min(forward, ITEM_COUNT - forward), Math.abs(target - closest));
+                assertTrue(target - closest > -ITEM_COUNT / 2);
+            }
+        }
+    }
+
+    /**
+     * 原来的实现：计算整个布局，逐个比较
+     */
+    private static int scanClosestPosition(LayoutBuffer items, float targetFraction) {
+        int hitPos = -1;
+        if (items.size() > 1) {
+            hitPos = items.getIndex(0);
+            float hitFraction = Math.abs(items.getFraction(0) - targetFraction);
+            for (int i = 1; i < items.size(); i++) {
+                float tempFraction = Math.abs(items.getFraction(i) - targetFraction);
+                if (tempFraction < hitFraction) {
+                    hitPos = items.getIndex(i);
+                    hitFraction = tempFraction;
+                }
+            }
+        }
+        if (hitPos < 0 && !items.isEmpty()) {
+            hitPos = items.getIndex(0);
+        }
+        return hitPos;
+    }
+
+    @Test
+    public void closestPosition_matchesScan() {
+        Random random = new Random(3);
+        LayoutBuffer buffer = new LayoutBuffer();
+        int[] itemOffsets = {7, 50, 120};
+        int[] itemCounts = {1, 3, 20, 1000};
+        float[] targets = {0, .25F, .5F, .9999F, 1};
+        KeyframeTable table = new KeyframeTable(new PolylinePathSource(
+                new float[]{0, 0, 300, 0, 300, 200}), KeyframeTable.PRECISION);
+        for (int itemOffset : itemOffsets) {
+            PathLayoutCore core = new PathLayoutCore(itemOffset);
+            core.setPathLength(table.getPathLength());
+            for (int mode = PathLayoutCore.SCROLL_MODE_NORMAL; mode <= PathLayoutCore.SCROLL_MODE_LOOP; mode++) {
+                core.setScrollMode(mode);
+                for (int itemCount : itemCounts) {
+                    int itemLength = core.getItemLength(itemCount);
+                    for (int n = 0; n < 100; n++) {
+                        float offset = core.updateOffset(0, (random.nextFloat() * 1.4F - .2F) * itemLength, itemCount);
+                        if (n % 5 == 0) {
+                            //Item刚好在落点上，最容易出现距离相同的情况
+                            offset = core.updateOffset(0, random.nextInt(itemCount + 1) * itemOffset
+                                    - table.getPathLength() / 2F, itemCount);
+                        }
+                        core.computeLayoutItems(table, false, offset, itemCount, itemCount, buffer);
+                        for (float target : targets) {
+                            assertEquals("offset " + offset + " mode " + mode + " count " + itemCount
+                                            + " target " + target, scanClosestPosition(buffer, target),
+                                    core.findClosestPosition(offset, itemCount, itemCount, target));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void flingSnap_landsOnTarget() {
+        Random random = new Random(5);
+        int[] itemCounts = {20, 1000};
+        for (int mode = PathLayoutCore.SCROLL_MODE_NORMAL; mode <= PathLayoutCore.SCROLL_MODE_LOOP; mode++) {
+            mCore.setScrollMode(mode);
+            for (int itemCount : itemCounts) {
+                int itemLength = mCore.getItemLength(itemCount);
+                for (int n = 0; n < 200; n++) {
+                    float offset = mCore.updateOffset(0, random.nextFloat() * itemLength, itemCount);
+                    float flingDistance = (random.nextFloat() * 2 - 1) * itemLength * 3;
+                    float target = random.nextFloat();
+                    int position = mCore.findClosestPosition(mCore.predictFlingOffset(offset, flingDistance, itemCount),
+                            itemCount, itemCount, target);
+                    if (position < 0) {
+                        //溢出模式下可能会滚到所有Item都不可见的位置
+                        assertEquals(PathLayoutCore.SCROLL_MODE_OVERFLOW, mode);
+                        continue;
+                    }
+                    int distance = Math.round(mCore.getFlingSnapDistance(position, offset, flingDistance,
+                            itemCount, itemCount, target));
+                    //模拟RecyclerView每一帧的scrollBy，offset不再改变时就会停下
+                    int step = distance < 0 ? -16 : 16;
+                    int wrapCount = 0;
+                    boolean isStopped = false;
+                    while (distance != 0) {
+                        int dx = Math.abs(distance) < 16 ? distance : step;
+                        float last = offset;
+                        offset = mCore.updateOffset(offset, dx, itemCount);
+                        if (Math.abs(offset - last - dx) > .01F) {
+                            if (mode != PathLayoutCore.SCROLL_MODE_LOOP) {
+                                //滚到尽头了
+                                isStopped = true;
+                                break;
+                            }
+                            wrapCount++;
+                        }
+                        distance -= dx;
+                    }
+                    if (isStopped) {
+                        //普通模式下目标Item可能到不了落点，这时候滚到尽头就停下
+                        assertTrue(mode != PathLayoutCore.SCROLL_MODE_LOOP);
+                        continue;
+                    }
+                    float fraction = mCore.getVisibleItemFraction(position, offset, itemCount, itemCount);
+                    //无限循环模式下每次首尾衔接都会有1px的误差
+                    assertEquals("mode " + mode + " count " + itemCount, target, fraction,
+                            (wrapCount + 1F) / PATH_LENGTH);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void prefetchPositions_matchScan() {
+        Random random = new Random(9);
+        int[] out = new int[8];
+        for (int mode = PathLayoutCore.SCROLL_MODE_NORMAL; mode <= PathLayoutCore.SCROLL_MODE_LOOP; mode++) {
+            mCore.setScrollMode(mode);
+            int itemLength = mCore.getItemLength(ITEM_COUNT);
+            for (int n = 0; n < 300; n++) {
+                float offset = mCore.updateOffset(0, (random.nextFloat() * 1.4F - .2F) * itemLength, ITEM_COUNT);
+                if (n % 5 == 0) {
+                    //Item刚好在Path的起点或终点上
+                    offset = mCore.updateOffset(0, random.nextInt(ITEM_COUNT) * ITEM_OFFSET, ITEM_COUNT);
+                }
+                for (int delta = -1; delta <= 1; delta += 2) {
+                    int count = mCore.findPrefetchPositions(offset, delta, ITEM_COUNT, ITEM_COUNT, 4, out);
+                    //逐个查找：按滚动方向排在可见Item后面的Item
+                    int expectedCount = 0;
+                    for (int i = -3 * delta * ITEM_COUNT; Math.abs(i) <= 3 * ITEM_COUNT && expectedCount < 4; i += delta) {
+                        float fraction = mCore.getItemFraction(i, offset, ITEM_COUNT);
+                        int position = mCore.getAdapterPosition(i, ITEM_COUNT);
+                        boolean isEntering = delta > 0 ? fraction >= 1 : fraction < 0;
+                        if (!isEntering || position < 0 || position >= ITEM_COUNT) {
+                            continue;
+                        }
+                        String message = "offset " + offset + " mode " + mode + " delta " + delta;
+                        assertTrue(message, expectedCount < count);
+                        assertEquals(message, position, out[expectedCount * 2]);
+                        assertEquals(message, (int) Math.abs((fraction - (delta > 0 ? 1 : 0)) * PATH_LENGTH),
+                                out[expectedCount * 2 + 1]);
+                        expectedCount++;
+                    }
+                    assertEquals("offset " + offset + " mode " + mode, expectedCount, count);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void itemFractionByPosition_matchesVisibleFraction() {
+        Random random = new Random(13);
+        for (int mode = PathLayoutCore.SCROLL_MODE_NORMAL; mode <= PathLayoutCore.SCROLL_MODE_LOOP; mode++) {
+            mCore.setScrollMode(mode);
+            for (int n = 0; n < 200; n++) {
+                float offset = mCore.updateOffset(0, (random.nextFloat() * 1.4F - .2F) * 1000, ITEM_COUNT);
+                for (int position = 0; position < ITEM_COUNT; position++) {
+                    float fraction = mCore.getItemFractionByPosition(position, offset, ITEM_COUNT);
+                    float visibleFraction = mCore.getVisibleItemFraction(position, offset, ITEM_COUNT, ITEM_COUNT);
+                    if (visibleFraction >= 0) {
+                        assertEquals("offset " + offset, visibleFraction, fraction, 1e-4F);
+                    } else if (mode != PathLayoutCore.SCROLL_MODE_LOOP) {
+                        //无限循环模式下布局窗口的边缘可能会漏掉刚好在Path终点附近的Item，所以只检查其他模式
+                        assertTrue("offset " + offset, fraction < 0 || fraction >= 1);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void overflowCount() {
+        assertEquals(-9, mCore.getOverflowCount(0, ITEM_COUNT));
+        assertEquals(-8, mCore.getOverflowCount(50, ITEM_COUNT));
+    }
+
+    @Test
+    public void scale_interpolatesBetweenStops() {
+        float[] ratios = {0, 0, 1, .5F, 0, 1};
+        assertEquals(0, PathLayoutCore.getScale(ratios, 0), 1e-6F);
+        assertEquals(.5F, PathLayoutCore.getScale(ratios, .25F), 1e-6F);
+        assertEquals(1, PathLayoutCore.getScale(ratios, .5F), 1e-6F);
+        assertEquals(.5F, PathLayoutCore.getScale(ratios, .75F), 1e-6F);
+        assertEquals(0, PathLayoutCore.getScale(ratios, 1), 1e-6F);
+    }
+
+    @Test
+    public void fixOverflowIndex() {
+        assertEquals(1, PathLayoutCore.fixOverflowIndex(11, 10));
+        assertEquals(9, PathLayoutCore.fixOverflowIndex(-1, 10));
+        assertEquals(0, PathLayoutCore.fixOverflowIndex(10, 10));
+        assertEquals(0, PathLayoutCore.fixOverflowIndex(-10, 10));
+        assertEquals(3, PathLayoutCore.fixOverflowIndex(-1999997, 10));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void zeroItemOffset_throws() {
+        new PathLayoutCore(0).setPathLength(PATH_LENGTH);
+    }
+}